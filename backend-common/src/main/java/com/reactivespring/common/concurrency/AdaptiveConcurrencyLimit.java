@@ -0,0 +1,118 @@
+package com.reactivespring.common.concurrency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that follows the latency gradient: the limit grows by about sqrt(limit) per window while the
+ * window latency stays within the tolerance of the long term average, shrinks with the ratio of the two when it
+ * doesn't, and is multiplied by the backoff ratio when a window saw a drop (timeout, 5xx).
+ * Lower priorities may only use a share of the limit, so they are shed first.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    public enum Priority {
+        CRITICAL(1.0), NORMAL(0.9), SHEDDABLE(0.5);
+
+        private final double share;
+
+        Priority(double share) {
+            this.share = share;
+        }
+    }
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double rttTolerance;
+    private final double smoothing;
+    private final double backoffRatio;
+    private final int windowSize;
+    private final double longRttFactor;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+
+    //guarded by this
+    private double longRtt;
+    private long windowRttSum;
+    private int windowSamples;
+    private int windowMaxInFlight;
+    private boolean windowDropped;
+
+    public AdaptiveConcurrencyLimit(ConcurrencyLimitProperties properties) {
+        this.minLimit = properties.getMinLimit();
+        this.maxLimit = properties.getMaxLimit();
+        this.rttTolerance = properties.getRttTolerance();
+        this.smoothing = properties.getSmoothing();
+        this.backoffRatio = properties.getBackoffRatio();
+        this.windowSize = properties.getWindowSize();
+        this.longRttFactor = 2.0 / (properties.getLongWindow() + 1);
+        this.limit = Math.max(minLimit, Math.min(maxLimit, properties.getInitialLimit()));
+    }
+
+    public boolean tryAcquire(Priority priority) {
+        var allowed = Math.max(1, (int) (limit * priority.share));
+        while(true) {
+            var current = inFlight.get();
+            if(current >= allowed) {
+                return false;
+            }
+            if(inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void onSample(long rttNanos, boolean dropped) {
+        var current = inFlight.getAndDecrement();
+        synchronized(this) {
+            windowRttSum += rttNanos;
+            windowSamples++;
+            windowMaxInFlight = Math.max(windowMaxInFlight, current);
+            windowDropped |= dropped;
+            if(windowSamples >= windowSize) {
+                update(windowRttSum / (double) windowSamples);
+            }
+        }
+    }
+
+    //cancelled requests (client gone) say nothing about the latency
+    public void onIgnore() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private void update(double shortRtt) {
+        if(longRtt == 0) {
+            longRtt = shortRtt;
+        } else {
+            longRtt += (shortRtt - longRtt) * longRttFactor;
+        }
+        //after a latency drop the long term average would keep the limit growing for too long
+        if(longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+
+        var newLimit = limit;
+        if(windowDropped) {
+            //not smoothed, drops mean the backend is already overloaded
+            newLimit = limit * backoffRatio;
+        } else if(windowMaxInFlight * 2 >= limit) {
+            //an app that doesn't use half of its limit tells nothing about a higher one
+            var gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRtt / shortRtt));
+            newLimit = limit * (1 - smoothing) + (limit * gradient + Math.sqrt(limit)) * smoothing;
+        }
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+
+        windowRttSum = 0;
+        windowSamples = 0;
+        windowMaxInFlight = 0;
+        windowDropped = false;
+    }
+}
@@ -0,0 +1,117 @@
+package com.reactivespring.common.concurrency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+//runs before the dispatcher, so it covers annotated controllers and router functions alike
+@Slf4j
+public class ConcurrencyLimitFilter implements WebFilter, Ordered {
+
+    private final AdaptiveConcurrencyLimit limit;
+    private final List<PathPattern> excludedPaths;
+    private final Map<PathPattern, AdaptiveConcurrencyLimit.Priority> routes = new LinkedHashMap<>();
+    private final String retryAfter;
+    private final Map<AdaptiveConcurrencyLimit.Priority, Counter> shedCounters = new EnumMap<>(AdaptiveConcurrencyLimit.Priority.class);
+
+    public ConcurrencyLimitFilter(ConcurrencyLimitProperties properties, MeterRegistry meterRegistry) {
+        this.limit = new AdaptiveConcurrencyLimit(properties);
+        var parser = PathPatternParser.defaultInstance;
+        this.excludedPaths = properties.getExcludedPaths().stream().map(parser::parse).collect(Collectors.toList());
+        properties.getRoutes().forEach(route -> routes.put(parser.parse(route.getPattern()), route.getPriority()));
+        this.retryAfter = String.valueOf(Math.max(1, properties.getRetryAfter().toSeconds()));
+
+        Gauge.builder("http.server.concurrency.limit", limit, AdaptiveConcurrencyLimit::getLimit).register(meterRegistry);
+        for(var priority : AdaptiveConcurrencyLimit.Priority.values()) {
+            shedCounters.put(priority, Counter.builder("http.server.requests.shed")
+                    .tag("priority", priority.name())
+                    .register(meterRegistry));
+        }
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        var path = exchange.getRequest().getPath().pathWithinApplication();
+        if(exchange.getRequest().getHeaders().getAccept().contains(MediaType.TEXT_EVENT_STREAM)
+                || excludedPaths.stream().anyMatch(pattern -> pattern.matches(path))) {
+            return chain.filter(exchange);
+        }
+        var streaming = isStreaming(exchange.getRequest());
+        var priority = routes.entrySet().stream()
+                .filter(route -> route.getKey().matches(path))
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElse(AdaptiveConcurrencyLimit.Priority.NORMAL);
+
+        return Mono.defer(() -> {
+            if(!limit.tryAcquire(priority)) {
+                shedCounters.get(priority).increment();
+                log.debug("Shedding {} request to {}, limit is {}", priority, path, limit.getLimit());
+                var response = exchange.getResponse();
+                response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                response.getHeaders().set(HttpHeaders.RETRY_AFTER, retryAfter);
+                return response.setComplete();
+            }
+            var start = System.nanoTime();
+            return chain.filter(exchange)
+                    .doOnSuccess(done -> onComplete(start, streaming, exchange.getResponse().getStatusCode()))
+                    .doOnError(error -> onComplete(start, streaming, statusOf(error)))
+                    .doOnCancel(limit::onIgnore);
+        });
+    }
+
+    //only timeouts and server errors say the service is overloaded, a client sending bad requests doesn't
+    private void onComplete(long start, boolean streaming, HttpStatus status) {
+        if(streaming) {
+            limit.onIgnore();
+            return;
+        }
+        limit.onSample(System.nanoTime() - start, status != null && status.is5xxServerError());
+    }
+
+    //the WebExceptionHandlers run outside this filter, an error hasn't been turned into a response yet
+    private static HttpStatus statusOf(Throwable error) {
+        if(error instanceof ResponseStatusException) {
+            return ((ResponseStatusException) error).getStatus();
+        }
+        return error instanceof TimeoutException ? HttpStatus.GATEWAY_TIMEOUT : HttpStatus.INTERNAL_SERVER_ERROR;
+    }
+
+    //NDJSON exports and uploads hold their slot for as long as the transfer lasts, their duration isn't a latency
+    private static boolean isStreaming(ServerHttpRequest request) {
+        var contentType = request.getHeaders().getContentType();
+        return (contentType != null && contentType.equalsTypeAndSubtype(MediaType.APPLICATION_NDJSON))
+                || request.getHeaders().getAccept().stream()
+                        .anyMatch(mediaType -> mediaType.equalsTypeAndSubtype(MediaType.APPLICATION_NDJSON));
+    }
+
+    //ahead of the metrics filters, a shed request costs as little as possible
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    AdaptiveConcurrencyLimit getLimit() {
+        return limit;
+    }
+}
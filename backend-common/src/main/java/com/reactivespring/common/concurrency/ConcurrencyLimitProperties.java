@@ -0,0 +1,40 @@
+package com.reactivespring.common.concurrency;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+//adaptive concurrency limit applied by ConcurrencyLimitFilter to every route, under concurrency-limit
+@Data
+@ConfigurationProperties(prefix = "concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+    private boolean enabled = true;
+    private int initialLimit = 20;
+    private int minLimit = 4;
+    private int maxLimit = 500;
+    //window latency may exceed the long term average by this factor before the limit is lowered
+    private double rttTolerance = 1.5;
+    private double smoothing = 0.2;
+    //limit multiplier for a window with a timeout or a 5xx in it
+    private double backoffRatio = 0.9;
+    //completed requests per limit update
+    private int windowSize = 50;
+    //completed requests the long term latency average is taken over
+    private int longWindow = 600;
+    private Duration retryAfter = Duration.ofSeconds(1);
+    //SSE streams are never limited, they are long lived and their latency means nothing
+    private List<String> excludedPaths = new ArrayList<>(List.of("/actuator/**"));
+    //first matching pattern wins, other routes are NORMAL
+    private List<Route> routes = new ArrayList<>();
+
+    @Data
+    public static class Route {
+
+        private String pattern;
+        private AdaptiveConcurrencyLimit.Priority priority = AdaptiveConcurrencyLimit.Priority.NORMAL;
+    }
+}
@@ -0,0 +1,56 @@
+package com.reactivespring.common.mongo;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Sets version 0 on the documents stored before they were versioned: a document read without a version
+ * is taken as new, and its next save would try to insert it again.
+ * Each service declares it as a bean with its own versioned documents.
+ */
+@Slf4j
+public class DocumentVersionInitializer implements InitializingBean {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final List<Class<?>> versionedDocuments;
+    private final Duration timeout;
+
+    public DocumentVersionInitializer(ReactiveMongoTemplate reactiveMongoTemplate, List<Class<?>> versionedDocuments,
+                                      Duration timeout) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.versionedDocuments = List.copyOf(versionedDocuments);
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        var mappingContext = reactiveMongoTemplate.getConverter().getMappingContext();
+        Flux.fromIterable(versionedDocuments)
+                .concatMap(documentType -> {
+                    var versionField = mappingContext.getRequiredPersistentEntity(documentType)
+                            .getRequiredVersionProperty().getFieldName();
+                    return reactiveMongoTemplate.updateMulti(query(where(versionField).exists(false)),
+                                    new Update().set(versionField, 0L), documentType)
+                            .filter(updateResult -> updateResult.getModifiedCount() > 0)
+                            .doOnNext(updateResult -> log.info("Set version 0 on {} {} documents",
+                                    updateResult.getModifiedCount(), documentType.getSimpleName()));
+                })
+                //inside onErrorResume, an unreachable Mongo is logged instead of failing the startup
+                .timeout(timeout)
+                .onErrorResume(ex -> {
+                    log.error("Unable to set the version of the unversioned documents", ex);
+                    return Mono.empty();
+                })
+                .blockLast();
+    }
+}
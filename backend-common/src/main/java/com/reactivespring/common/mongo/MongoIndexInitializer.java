@@ -0,0 +1,83 @@
+package com.reactivespring.common.mongo;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Creates the indexes declared on the documents before the application starts serving requests,
+ * then checks that every one of them is actually present in the collection.
+ * Each service declares it as a bean with its own indexed documents.
+ */
+@Slf4j
+public class MongoIndexInitializer implements InitializingBean {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final List<Class<?>> indexedDocuments;
+    private final boolean failOnMissing;
+    private final Duration timeout;
+
+    public MongoIndexInitializer(ReactiveMongoTemplate reactiveMongoTemplate, List<Class<?>> indexedDocuments,
+                                 boolean failOnMissing, Duration timeout) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.indexedDocuments = List.copyOf(indexedDocuments);
+        this.failOnMissing = failOnMissing;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        var indexResolver = IndexResolver.create(reactiveMongoTemplate.getConverter().getMappingContext());
+        var missing = Flux.fromIterable(indexedDocuments)
+                .concatMap(documentType -> ensureIndexes(documentType, indexResolver.resolveIndexFor(documentType)))
+                .collectList()
+                //inside onErrorResume, so an unreachable Mongo is a missing index too and fail-on-missing decides
+                .timeout(timeout)
+                .onErrorResume(ex -> {
+                    log.error("Unable to verify the mongo indexes", ex);
+                    return Mono.just(List.of("all indexes : " + ex.getMessage()));
+                })
+                .block();
+
+        if (missing == null || missing.isEmpty()) {
+            log.info("Mongo indexes verified for {}", indexedDocuments);
+            return;
+        }
+        if (failOnMissing) {
+            throw new IllegalStateException("Missing mongo indexes : " + missing);
+        }
+        log.warn("Missing mongo indexes, queries on these fields will scan the whole collection : {}", missing);
+    }
+
+    private Flux<String> ensureIndexes(Class<?> documentType, Iterable<? extends IndexDefinition> indexes) {
+        var indexOps = reactiveMongoTemplate.indexOps(documentType);
+        return Flux.fromIterable(indexes)
+                .concatMap(index -> indexOps.ensureIndex(index)
+                        .onErrorResume(ex -> {
+                            log.error("Unable to create index {} on {}", index.getIndexKeys().toJson(), documentType.getSimpleName(), ex);
+                            return Mono.empty();
+                        }))
+                .thenMany(indexOps.getIndexInfo().collectList())
+                .flatMap(existing -> Flux.fromIterable(indexes)
+                        .filter(index -> existing.stream().noneMatch(info -> matches(index, info)))
+                        .map(index -> documentType.getSimpleName() + index.getIndexKeys().toJson()));
+    }
+
+    private static boolean matches(IndexDefinition index, IndexInfo info) {
+        var keys = new ArrayList<>(index.getIndexKeys().keySet());
+        var unique = Boolean.TRUE.equals(index.getIndexOptions().get("unique"));
+        return keys.equals(info.getIndexFields().stream().map(IndexField::getKey).collect(Collectors.toList()))
+                && unique == info.isUnique();
+    }
+}
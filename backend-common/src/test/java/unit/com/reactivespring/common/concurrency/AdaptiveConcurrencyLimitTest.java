@@ -0,0 +1,111 @@
+package com.reactivespring.common.concurrency;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static com.reactivespring.common.concurrency.AdaptiveConcurrencyLimit.Priority.CRITICAL;
+import static com.reactivespring.common.concurrency.AdaptiveConcurrencyLimit.Priority.NORMAL;
+import static com.reactivespring.common.concurrency.AdaptiveConcurrencyLimit.Priority.SHEDDABLE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimitTest {
+
+    ConcurrencyLimitProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ConcurrencyLimitProperties();
+        properties.setInitialLimit(20);
+        properties.setWindowSize(10);
+    }
+
+    @Test
+    void lowerPrioritiesAreShedFirst() {
+        var limit = new AdaptiveConcurrencyLimit(properties);
+
+        assertEquals(10, acquireAll(limit, SHEDDABLE));
+        assertEquals(8, acquireAll(limit, NORMAL));
+        assertEquals(2, acquireAll(limit, CRITICAL));
+        assertEquals(20, limit.getInFlight());
+    }
+
+    @Test
+    void limitGrowsWhileLatencyIsSteady() {
+        var limit = new AdaptiveConcurrencyLimit(properties);
+
+        for(int i = 0; i < 20; i++) {
+            completeAll(limit, acquireAll(limit, CRITICAL), Duration.ofMillis(10), false);
+        }
+
+        assertTrue(limit.getLimit() > 40, "limit " + limit.getLimit());
+        assertEquals(0, limit.getInFlight());
+    }
+
+    @Test
+    void limitShrinksWhenLatencyRises() {
+        var limit = new AdaptiveConcurrencyLimit(properties);
+        for(int i = 0; i < 5; i++) {
+            completeAll(limit, acquireAll(limit, CRITICAL), Duration.ofMillis(10), false);
+        }
+        var grownLimit = limit.getLimit();
+
+        for(int i = 0; i < 10; i++) {
+            completeAll(limit, acquireAll(limit, CRITICAL), Duration.ofMillis(100), false);
+        }
+
+        assertTrue(limit.getLimit() < grownLimit, grownLimit + " -> " + limit.getLimit());
+    }
+
+    @Test
+    void dropsBackOffRightAway() {
+        var limit = new AdaptiveConcurrencyLimit(properties);
+
+        completeAll(limit, 10, Duration.ofMillis(10), true);
+
+        assertEquals(18, limit.getLimit());
+    }
+
+    @Test
+    void limitStaysWithinBounds() {
+        properties.setMinLimit(15);
+        var limit = new AdaptiveConcurrencyLimit(properties);
+
+        for(int i = 0; i < 10; i++) {
+            completeAll(limit, 10, Duration.ofMillis(10), true);
+        }
+
+        assertEquals(15, limit.getLimit());
+    }
+
+    @Test
+    void idleLimitDoesNotGrow() {
+        var limit = new AdaptiveConcurrencyLimit(properties);
+
+        for(int i = 0; i < 50; i++) {
+            completeAll(limit, 1, Duration.ofMillis(10), false);
+        }
+
+        assertEquals(20, limit.getLimit());
+    }
+
+    private static int acquireAll(AdaptiveConcurrencyLimit limit, AdaptiveConcurrencyLimit.Priority priority) {
+        var acquired = 0;
+        while(limit.tryAcquire(priority)) {
+            acquired++;
+        }
+        return acquired;
+    }
+
+    private static void completeAll(AdaptiveConcurrencyLimit limit, int requests, Duration rtt, boolean dropped) {
+        for(int i = 0; i < requests; i++) {
+            if(limit.getInFlight() == 0) {
+                limit.tryAcquire(CRITICAL);
+            }
+            limit.onSample(rtt.toNanos(), dropped);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.reactivespring.common.concurrency;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimitFilterTest {
+
+    MeterRegistry meterRegistry;
+    ConcurrencyLimitFilter filter;
+    List<Sinks.Empty<Void>> pending;
+    //requests stay in flight until their sink is completed
+    WebFilterChain chain;
+
+    @BeforeEach
+    void setUp() {
+        var properties = new ConcurrencyLimitProperties();
+        properties.setInitialLimit(4);
+        properties.setMinLimit(4);
+        properties.setRetryAfter(Duration.ofSeconds(2));
+        var route = new ConcurrencyLimitProperties.Route();
+        route.setPattern("/v1/reviews:bulk");
+        route.setPriority(AdaptiveConcurrencyLimit.Priority.SHEDDABLE);
+        properties.setRoutes(List.of(route));
+
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new ConcurrencyLimitFilter(properties, meterRegistry);
+        pending = new ArrayList<>();
+        chain = exchange -> {
+            var sink = Sinks.<Void>empty();
+            pending.add(sink);
+            return sink.asMono();
+        };
+    }
+
+    @Test
+    void requestsOverTheLimitAreShed() {
+        //NORMAL routes get 90% of the limit of 4
+        for(int i = 0; i < 3; i++) {
+            filter.filter(exchange("/v1/reviews"), chain).subscribe();
+        }
+
+        var shed = exchange("/v1/reviews");
+        StepVerifier.create(filter.filter(shed, chain)).verifyComplete();
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, shed.getResponse().getStatusCode());
+        assertEquals("2", shed.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(1.0, meterRegistry.get("http.server.requests.shed").tag("priority", "NORMAL").counter().count());
+        assertEquals(4.0, meterRegistry.get("http.server.concurrency.limit").gauge().value());
+
+        //a completed request frees its slot
+        pending.get(0).tryEmitEmpty();
+        var admitted = exchange("/v1/reviews");
+        filter.filter(admitted, chain).subscribe();
+        assertNull(admitted.getResponse().getStatusCode());
+        assertEquals(4, pending.size());
+    }
+
+    @Test
+    void sheddableRoutesGetHalfOfTheLimit() {
+        for(int i = 0; i < 2; i++) {
+            filter.filter(exchange("/v1/reviews:bulk"), chain).subscribe();
+        }
+
+        var shed = exchange("/v1/reviews:bulk");
+        filter.filter(shed, chain).subscribe();
+        var admitted = exchange("/v1/reviews");
+        filter.filter(admitted, chain).subscribe();
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, shed.getResponse().getStatusCode());
+        assertNull(admitted.getResponse().getStatusCode());
+        assertEquals(1.0, meterRegistry.get("http.server.requests.shed").tag("priority", "SHEDDABLE").counter().count());
+    }
+
+    @Test
+    void streamsAndActuatorAreNotLimited() {
+        for(int i = 0; i < 3; i++) {
+            filter.filter(exchange("/v1/reviews"), chain).subscribe();
+        }
+
+        var stream = MockServerWebExchange.from(MockServerHttpRequest.get("/v1/reviews/stream")
+                .accept(MediaType.TEXT_EVENT_STREAM));
+        filter.filter(stream, chain).subscribe();
+        var prometheus = exchange("/actuator/prometheus");
+        filter.filter(prometheus, chain).subscribe();
+
+        assertNull(stream.getResponse().getStatusCode());
+        assertNull(prometheus.getResponse().getStatusCode());
+        assertEquals(5, pending.size());
+    }
+
+    @Test
+    void cancelledRequestsReleaseTheirSlot() {
+        var subscriptions = new ArrayList<Disposable>();
+        for(int i = 0; i < 3; i++) {
+            subscriptions.add(filter.filter(exchange("/v1/reviews"), chain).subscribe());
+        }
+        subscriptions.forEach(Disposable::dispose);
+
+        var admitted = exchange("/v1/reviews");
+        filter.filter(admitted, chain).subscribe();
+
+        assertNull(admitted.getResponse().getStatusCode());
+        assertEquals(1, filter.getLimit().getInFlight());
+    }
+
+    @Test
+    void ndjsonTransfersAreNotSampled() {
+        var properties = new ConcurrencyLimitProperties();
+        properties.setInitialLimit(4);
+        properties.setMinLimit(1);
+        properties.setWindowSize(1);
+        var sampledFilter = new ConcurrencyLimitFilter(properties, new SimpleMeterRegistry());
+        WebFilterChain unavailable = exchange -> {
+            exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            return exchange.getResponse().setComplete();
+        };
+
+        var export = MockServerWebExchange.from(MockServerHttpRequest.get("/v1/reviews")
+                .accept(MediaType.APPLICATION_NDJSON));
+        var upload = MockServerWebExchange.from(MockServerHttpRequest.post("/v1/reviews:bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(""));
+        StepVerifier.create(sampledFilter.filter(export, unavailable)).verifyComplete();
+        StepVerifier.create(sampledFilter.filter(upload, unavailable)).verifyComplete();
+
+        //the slots are released without a sample, the same outcome on a short request backs off
+        assertEquals(4, sampledFilter.getLimit().getLimit());
+        assertEquals(0, sampledFilter.getLimit().getInFlight());
+        StepVerifier.create(sampledFilter.filter(exchange("/v1/reviews"), unavailable)).verifyComplete();
+        assertTrue(sampledFilter.getLimit().getLimit() < 4);
+    }
+
+    @Test
+    void clientErrorsAreNotDrops() {
+        var properties = new ConcurrencyLimitProperties();
+        properties.setInitialLimit(4);
+        properties.setMinLimit(1);
+        properties.setWindowSize(1);
+        var sampledFilter = new ConcurrencyLimitFilter(properties, new SimpleMeterRegistry());
+
+        StepVerifier.create(sampledFilter.filter(exchange("/v1/reviews"),
+                        exchange -> Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be positive"))))
+                .verifyError(ResponseStatusException.class);
+        StepVerifier.create(sampledFilter.filter(exchange("/v1/unknown"),
+                        exchange -> Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND))))
+                .verifyError(ResponseStatusException.class);
+
+        assertEquals(4, sampledFilter.getLimit().getLimit());
+        assertEquals(0, sampledFilter.getLimit().getInFlight());
+
+        //an unhandled error becomes a 500, that one backs off
+        StepVerifier.create(sampledFilter.filter(exchange("/v1/reviews"),
+                        exchange -> Mono.error(new IllegalStateException())))
+                .verifyError(IllegalStateException.class);
+        assertTrue(sampledFilter.getLimit().getLimit() < 4);
+    }
+
+    private static MockServerWebExchange exchange(String path) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(path));
+    }
+}
@@ -0,0 +1,65 @@
+package com.reactivespring.common.mongo;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MongoIndexInitializerTest {
+
+    ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @BeforeEach
+    void setUp() {
+        //an unreachable Mongo: the driver would only give up after its own server selection timeout
+        var indexOps = mock(ReactiveIndexOperations.class);
+        when(indexOps.ensureIndex(any(IndexDefinition.class))).thenReturn(Mono.never());
+        when(indexOps.getIndexInfo()).thenReturn(Flux.empty());
+        var converter = mock(MongoConverter.class);
+        when(converter.getMappingContext()).thenAnswer(invocation -> new MongoMappingContext());
+        reactiveMongoTemplate = mock(ReactiveMongoTemplate.class);
+        when(reactiveMongoTemplate.getConverter()).thenReturn(converter);
+        when(reactiveMongoTemplate.indexOps(IndexedDocument.class)).thenReturn(indexOps);
+    }
+
+    @Test
+    void unreachableMongo_startsWhenMissingIndexesAreAllowed() {
+        var initializer = new MongoIndexInitializer(reactiveMongoTemplate, List.of(IndexedDocument.class),
+                false, Duration.ofMillis(100));
+
+        assertDoesNotThrow(initializer::afterPropertiesSet);
+    }
+
+    @Test
+    void unreachableMongo_failsWhenIndexesAreRequired() {
+        var initializer = new MongoIndexInitializer(reactiveMongoTemplate, List.of(IndexedDocument.class),
+                true, Duration.ofMillis(100));
+
+        var exception = assertThrows(IllegalStateException.class, initializer::afterPropertiesSet);
+        assertTrue(exception.getMessage().startsWith("Missing mongo indexes"));
+    }
+
+    @Document
+    static class IndexedDocument {
+
+        @Indexed
+        String name;
+    }
+}
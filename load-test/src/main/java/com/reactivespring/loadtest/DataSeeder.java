@@ -0,0 +1,72 @@
+package com.reactivespring.loadtest;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.InsertManyOptions;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Writes the documents straight into the collections the services read, shaped like their MovieInfo and Review.
+ */
+final class DataSeeder {
+
+    private static final Logger log = LoggerFactory.getLogger(DataSeeder.class);
+    private static final int BATCH_SIZE = 10_000;
+
+    private final MongoDatabase database;
+
+    DataSeeder(MongoDatabase database) {
+        this.database = database;
+    }
+
+    static String movieInfoId(int index) {
+        return "movie-" + index;
+    }
+
+    void seed(int movieInfos, int reviews) {
+        insert(database.getCollection("movieInfo"), movieInfos, DataSeeder::movieInfo);
+        //every movie gets about reviews / movieInfos reviews
+        insert(database.getCollection("review"), reviews, index -> review(index, movieInfos));
+    }
+
+    private static Document movieInfo(int index) {
+        var releaseDate = LocalDate.of(1950 + index % 75, 1 + index % 12, 1 + index % 28);
+        return new Document("_id", movieInfoId(index))
+                .append("name", "Movie " + index)
+                .append("year", releaseDate.getYear())
+                .append("cast", List.of("Actor " + index % 1_000, "Actor " + (index + 1) % 1_000))
+                .append("release_date", Date.from(releaseDate.atStartOfDay().toInstant(ZoneOffset.UTC)));
+    }
+
+    private static Document review(int index, int movieInfos) {
+        return new Document("movieInfoId", (long) (index % movieInfos))
+                .append("comment", "Review " + index)
+                .append("rating", (index % 101) / 10.0);
+    }
+
+    private static void insert(MongoCollection<Document> collection, int count, IntFunction<Document> document) {
+        var start = System.nanoTime();
+        var batch = new ArrayList<Document>(BATCH_SIZE);
+        for(int index = 0; index < count; index++) {
+            batch.add(document.apply(index));
+            if(batch.size() == BATCH_SIZE) {
+                collection.insertMany(batch, new InsertManyOptions().ordered(false));
+                batch.clear();
+            }
+        }
+        if(!batch.isEmpty()) {
+            collection.insertMany(batch, new InsertManyOptions().ordered(false));
+        }
+        log.info("Seeded {} documents into {} in {} ms", count, collection.getNamespace().getCollectionName(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,45 @@
+package com.reactivespring.loadtest;
+
+import de.flapdoodle.embed.mongo.MongodExecutable;
+import de.flapdoodle.embed.mongo.MongodStarter;
+import de.flapdoodle.embed.mongo.config.MongodConfig;
+import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.process.runtime.Network;
+
+import java.io.IOException;
+
+final class EmbeddedMongo implements AutoCloseable {
+
+    private final MongodExecutable mongodExecutable;
+    private final int port;
+
+    private EmbeddedMongo(MongodExecutable mongodExecutable, int port) {
+        this.mongodExecutable = mongodExecutable;
+        this.port = port;
+    }
+
+    static EmbeddedMongo start() throws IOException {
+        var port = Network.getFreeServerPort();
+        var mongodConfig = MongodConfig.builder()
+                .version(Version.Main.V4_0)
+                .net(new Net(port, Network.localhostIsIPv6()))
+                .build();
+        var mongodExecutable = MongodStarter.getDefaultInstance().prepare(mongodConfig);
+        mongodExecutable.start();
+        return new EmbeddedMongo(mongodExecutable, port);
+    }
+
+    int port() {
+        return port;
+    }
+
+    String connectionString() {
+        return "mongodb://localhost:" + port;
+    }
+
+    @Override
+    public void close() {
+        mongodExecutable.stop();
+    }
+}
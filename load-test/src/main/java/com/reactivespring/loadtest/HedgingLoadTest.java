@@ -0,0 +1,96 @@
+package com.reactivespring.loadtest;
+
+import de.flapdoodle.embed.process.runtime.Network;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Two movies-service instances, hedging off and on, in front of the same SlowStub, each measured on GET /v1/movies/{id}.
+ * Exits with 1 when hedging doesn't lower the p99 or either instance goes over the error rate threshold.
+ */
+public class HedgingLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(HedgingLoadTest.class);
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+    public static void main(String[] args) throws Exception {
+        var settings = LoadTestSettings.fromSystemProperties();
+        Files.createDirectories(settings.reportDir);
+
+        var connectionProvider = ConnectionProvider.builder("load-test")
+                .maxConnections(settings.maxInFlight)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        var httpClient = HttpClient.create(connectionProvider);
+        ScenarioResult unhedged;
+        ScenarioResult hedged;
+        String hedgeCounters;
+
+        try(var stub = SlowStub.start(settings.stubSlowFraction, settings.stubSlow, settings.stubFast);
+            var unhedgedService = startMoviesService(settings, stub, "movies-service-unhedged", false);
+            var hedgedService = startMoviesService(settings, stub, "movies-service-hedged", true)) {
+
+            unhedgedService.awaitHealthy(httpClient, STARTUP_TIMEOUT);
+            hedgedService.awaitHealthy(httpClient, STARTUP_TIMEOUT);
+
+            var loadGenerator = new OpenModelLoadGenerator(httpClient);
+            unhedged = LoadTestRunner.runScenario(loadGenerator, settings, "movie-by-id-unhedged",
+                    tick -> unhedgedService.baseUrl() + "/v1/movies/" + randomMovie());
+            hedged = LoadTestRunner.runScenario(loadGenerator, settings, "movie-by-id-hedged",
+                    tick -> hedgedService.baseUrl() + "/v1/movies/" + randomMovie());
+            hedgeCounters = scrapeHedgeCounters(httpClient, hedgedService);
+        } finally {
+            connectionProvider.disposeLater().block();
+        }
+
+        var summary = List.of(unhedged.summary(settings), hedged.summary(settings),
+                String.format("hedging p99 %.2fms -> %.2fms, stub answers %.1f%% of movie infos after %dms",
+                        unhedged.percentileMillis(99.0), hedged.percentileMillis(99.0),
+                        settings.stubSlowFraction * 100, settings.stubSlow.toMillis()),
+                hedgeCounters);
+        unhedged.writeHistogram(settings.reportDir);
+        hedged.writeHistogram(settings.reportDir);
+        summary.forEach(log::info);
+        Files.write(settings.reportDir.resolve("hedging-summary.txt"), summary);
+        log.info("Reports written to {}", settings.reportDir.toAbsolutePath());
+
+        var passed = hedged.percentileMillis(99.0) < unhedged.percentileMillis(99.0)
+                && unhedged.errorRate() <= settings.maxErrorRate
+                && hedged.errorRate() <= settings.maxErrorRate;
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static ServiceProcess startMoviesService(LoadTestSettings settings, SlowStub stub, String name, boolean hedge) throws Exception {
+        return ServiceProcess.start(name, settings.moviesServiceJar(), Network.getFreeServerPort(),
+                settings.reportDir.resolve(name + ".log"), List.of(
+                        "--restClient.moviesInfoUrl=" + stub.baseUrl() + "/v1/movieinfos",
+                        "--restClient.reviewsUrl=" + stub.baseUrl() + "/v1/reviews",
+                        "--restClient.moviesInfo.hedge.enabled=" + hedge));
+    }
+
+    //sent, budget_exhausted and won hedges as counted by the hedged instance
+    private static String scrapeHedgeCounters(HttpClient httpClient, ServiceProcess service) {
+        return httpClient.get()
+                .uri(service.baseUrl() + "/actuator/prometheus")
+                .responseContent()
+                .aggregate()
+                .asString()
+                .map(scrape -> scrape.lines()
+                        .filter(line -> line.startsWith("http_client_hedges_total") || line.startsWith("http_client_hedge_delay"))
+                        .collect(Collectors.joining(", ")))
+                .onErrorReturn("hedge counters unavailable")
+                .block(Duration.ofSeconds(10));
+    }
+
+    private static String randomMovie() {
+        return DataSeeder.movieInfoId(ThreadLocalRandom.current().nextInt(1_000));
+    }
+}
@@ -0,0 +1,80 @@
+package com.reactivespring.loadtest;
+
+import com.mongodb.client.MongoClients;
+import de.flapdoodle.embed.process.runtime.Network;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongFunction;
+
+/**
+ * Embedded Mongo, both services from their bootJars, seeded data, then each scenario at the configured rate.
+ * Exits with 1 when a scenario misses its p99 or error rate threshold, which fails the loadTest task.
+ */
+public class LoadTestRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTestRunner.class);
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+    public static void main(String[] args) throws Exception {
+        var settings = LoadTestSettings.fromSystemProperties();
+        Files.createDirectories(settings.reportDir);
+
+        var connectionProvider = ConnectionProvider.builder("load-test")
+                .maxConnections(settings.maxInFlight)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        var httpClient = HttpClient.create(connectionProvider);
+        var results = new ArrayList<ScenarioResult>();
+
+        try(var mongo = EmbeddedMongo.start();
+            var infoService = ServiceProcess.start("movies-info-service", settings.infoServiceJar(),
+                    Network.getFreeServerPort(), "localhost", mongo.port(), settings.reportDir.resolve("movies-info-service.log"));
+            var reviewService = ServiceProcess.start("movies-review-service", settings.reviewServiceJar(),
+                    Network.getFreeServerPort(), "localhost", mongo.port(), settings.reportDir.resolve("movies-review-service.log"));
+            var mongoClient = MongoClients.create(mongo.connectionString())) {
+
+            //the services create their indexes on the empty collections, the seeding then keeps them up to date
+            infoService.awaitHealthy(httpClient, STARTUP_TIMEOUT);
+            reviewService.awaitHealthy(httpClient, STARTUP_TIMEOUT);
+            new DataSeeder(mongoClient.getDatabase("loadtest")).seed(settings.movieInfos, settings.reviews);
+
+            var loadGenerator = new OpenModelLoadGenerator(httpClient);
+            results.add(runScenario(loadGenerator, settings, "movieinfo-by-id",
+                    tick -> infoService.baseUrl() + "/v1/movieinfos/" + DataSeeder.movieInfoId(randomMovie(settings))));
+            results.add(runScenario(loadGenerator, settings, "reviews-by-movie",
+                    tick -> reviewService.baseUrl() + "/v1/reviews?movieInfoId=" + randomMovie(settings)));
+        } finally {
+            connectionProvider.disposeLater().block();
+        }
+
+        var passed = true;
+        for(var result : results) {
+            result.writeHistogram(settings.reportDir);
+            log.info(result.summary(settings));
+            passed &= result.passes(settings);
+        }
+        Files.write(settings.reportDir.resolve("summary.txt"),
+                () -> results.stream().<CharSequence>map(result -> result.summary(settings)).iterator());
+        log.info("Reports written to {}", settings.reportDir.toAbsolutePath());
+        System.exit(passed ? 0 : 1);
+    }
+
+    static ScenarioResult runScenario(OpenModelLoadGenerator loadGenerator, LoadTestSettings settings,
+                                              String scenario, LongFunction<String> uri) {
+        log.info("Warming up {} for {}s at {} req/s", scenario, settings.warmup.toSeconds(), settings.rate);
+        loadGenerator.run(scenario, uri, settings.rate, settings.warmup, settings.maxInFlight);
+        log.info("Running {} for {}s at {} req/s", scenario, settings.duration.toSeconds(), settings.rate);
+        return loadGenerator.run(scenario, uri, settings.rate, settings.duration, settings.maxInFlight);
+    }
+
+    private static int randomMovie(LoadTestSettings settings) {
+        return ThreadLocalRandom.current().nextInt(settings.movieInfos);
+    }
+}
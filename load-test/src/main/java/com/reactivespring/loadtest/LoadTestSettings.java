@@ -0,0 +1,65 @@
+package com.reactivespring.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Everything is read from loadtest.* system properties, the loadTest Gradle task forwards the matching -P properties.
+ */
+final class LoadTestSettings {
+
+    final Path reportDir;
+    final int movieInfos;
+    final int reviews;
+    //requests per second started whatever the response times, i.e. an open model
+    final int rate;
+    final Duration warmup;
+    final Duration duration;
+    final int maxInFlight;
+    final double p99ThresholdMillis;
+    final double maxErrorRate;
+    //share of the slow stub's answers delayed by stubSlow instead of stubFast
+    final double stubSlowFraction;
+    final Duration stubSlow;
+    final Duration stubFast;
+
+    private LoadTestSettings() {
+        reportDir = Path.of(System.getProperty("loadtest.report-dir", "build/reports/load-test"));
+        movieInfos = Integer.getInteger("loadtest.movie-infos", 100_000);
+        reviews = Integer.getInteger("loadtest.reviews", 2_000_000);
+        rate = Integer.getInteger("loadtest.rate", 500);
+        warmup = Duration.ofSeconds(Integer.getInteger("loadtest.warmup-seconds", 15));
+        duration = Duration.ofSeconds(Integer.getInteger("loadtest.duration-seconds", 60));
+        maxInFlight = Integer.getInteger("loadtest.max-in-flight", 2_000);
+        p99ThresholdMillis = Double.parseDouble(System.getProperty("loadtest.threshold.p99-millis", "50"));
+        maxErrorRate = Double.parseDouble(System.getProperty("loadtest.threshold.max-error-rate", "0.001"));
+        stubSlowFraction = Double.parseDouble(System.getProperty("loadtest.stub.slow-fraction", "0.02"));
+        stubSlow = Duration.ofMillis(Integer.getInteger("loadtest.stub.slow-millis", 200));
+        stubFast = Duration.ofMillis(Integer.getInteger("loadtest.stub.fast-millis", 2));
+    }
+
+    //each runner only needs the jars of the services it boots
+    Path infoServiceJar() {
+        return Path.of(required("loadtest.info-service-jar"));
+    }
+
+    Path reviewServiceJar() {
+        return Path.of(required("loadtest.review-service-jar"));
+    }
+
+    Path moviesServiceJar() {
+        return Path.of(required("loadtest.movies-service-jar"));
+    }
+
+    static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings();
+    }
+
+    private static String required(String name) {
+        var value = System.getProperty(name);
+        if(value == null) {
+            throw new IllegalArgumentException(name + " must be set, run the load test through the loadTest or hedgingLoadTest Gradle task");
+        }
+        return value;
+    }
+}
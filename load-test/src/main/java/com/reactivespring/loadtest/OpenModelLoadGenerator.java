@@ -0,0 +1,66 @@
+package com.reactivespring.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+/**
+ * Starts requests at a fixed rate whether or not the previous ones completed, and measures every latency
+ * from the time the request was due, so a stalled server shows up in the percentiles (no coordinated omission).
+ */
+final class OpenModelLoadGenerator {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+    private final HttpClient httpClient;
+
+    OpenModelLoadGenerator(HttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    ScenarioResult run(String scenario, LongFunction<String> uri, int rate, Duration duration, int maxInFlight) {
+        var histogram = new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(1), 3);
+        var errors = new LongAdder();
+        var dropped = new LongAdder();
+        var periodNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        var requests = rate * duration.toSeconds();
+
+        var start = System.nanoTime();
+        Flux.interval(Duration.ofNanos(periodNanos))
+                .take(requests)
+                //ticks that find maxInFlight requests still running are never sent, they count as errors
+                .onBackpressureDrop(tick -> dropped.increment())
+                .flatMap(tick -> {
+                    var dueNanos = start + (tick + 1) * periodNanos;
+                    return send(uri.apply(tick))
+                            .doOnNext(status -> {
+                                if(status >= 400) {
+                                    errors.increment();
+                                }
+                            })
+                            .onErrorResume(ex -> {
+                                errors.increment();
+                                return Mono.empty();
+                            })
+                            .doFinally(signalType -> histogram.recordValue(
+                                    Math.min(histogram.getHighestTrackableValue(), (System.nanoTime() - dueNanos) / 1_000)));
+                }, maxInFlight)
+                .blockLast();
+
+        return new ScenarioResult(scenario, histogram, requests, errors.sum(), dropped.sum(),
+                Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private Mono<Integer> send(String uri) {
+        return httpClient.get()
+                .uri(uri)
+                .responseSingle((response, body) -> body.asByteArray().then(Mono.just(response.status().code())))
+                .timeout(REQUEST_TIMEOUT);
+    }
+}
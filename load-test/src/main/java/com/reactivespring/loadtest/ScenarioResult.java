@@ -0,0 +1,61 @@
+package com.reactivespring.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+final class ScenarioResult {
+
+    //latencies are recorded in microseconds
+    private static final double MICROS_PER_MILLI = 1_000.0;
+
+    final String scenario;
+    final Histogram histogram;
+    final long requests;
+    final long errors;
+    final long dropped;
+    final Duration elapsed;
+
+    ScenarioResult(String scenario, Histogram histogram, long requests, long errors, long dropped, Duration elapsed) {
+        this.scenario = scenario;
+        this.histogram = histogram;
+        this.requests = requests;
+        this.errors = errors;
+        this.dropped = dropped;
+        this.elapsed = elapsed;
+    }
+
+    double percentileMillis(double percentile) {
+        return histogram.getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+    }
+
+    double errorRate() {
+        return requests == 0 ? 0 : (double) (errors + dropped) / requests;
+    }
+
+    double throughput() {
+        return (requests - dropped) / (elapsed.toNanos() / 1e9);
+    }
+
+    boolean passes(LoadTestSettings settings) {
+        return percentileMillis(99.0) <= settings.p99ThresholdMillis && errorRate() <= settings.maxErrorRate;
+    }
+
+    String summary(LoadTestSettings settings) {
+        return String.format("%-20s %s  requests=%d throughput=%.1f/s errors=%d dropped=%d p50=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms (p99 <= %.2fms, error rate <= %.4f)",
+                scenario, passes(settings) ? "PASS" : "FAIL", requests, throughput(), errors, dropped,
+                percentileMillis(50.0), percentileMillis(99.0), percentileMillis(99.9), histogram.getMaxValue() / MICROS_PER_MILLI,
+                settings.p99ThresholdMillis, settings.maxErrorRate);
+    }
+
+    //the .hgrm percentile distribution, in milliseconds, can be plotted with the HdrHistogram plotter
+    void writeHistogram(Path reportDir) throws IOException {
+        try(var out = new PrintStream(Files.newOutputStream(reportDir.resolve(scenario + ".hgrm")))) {
+            histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+        }
+    }
+}
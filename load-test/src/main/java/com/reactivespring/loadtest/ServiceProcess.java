@@ -0,0 +1,88 @@
+package com.reactivespring.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One of the services booted from its bootJar in a child JVM, so it is measured the way it runs in production.
+ */
+final class ServiceProcess implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ServiceProcess.class);
+
+    private final String name;
+    private final Process process;
+    private final int port;
+
+    private ServiceProcess(String name, Process process, int port) {
+        this.name = name;
+        this.process = process;
+        this.port = port;
+    }
+
+    static ServiceProcess start(String name, Path bootJar, int port, String mongoHost, int mongoPort, Path logFile) throws IOException {
+        return start(name, bootJar, port, logFile, List.of(
+                "--spring.data.mongodb.host=" + mongoHost,
+                "--spring.data.mongodb.port=" + mongoPort,
+                "--spring.data.mongodb.database=loadtest",
+                "--tracing.sample-rate=0",
+                "--reviews.summary.rebuild-cron=-"));
+    }
+
+    static ServiceProcess start(String name, Path bootJar, int port, Path logFile, List<String> arguments) throws IOException {
+        var command = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-jar", bootJar.toString(),
+                "--spring.profiles.active=dev",
+                "--server.port=" + port,
+                "--logging.level.root=warn"));
+        command.addAll(arguments);
+        log.info("Starting {} on port {}, logs in {}", name, port, logFile);
+        var process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(logFile.toFile())
+                .start();
+        return new ServiceProcess(name, process, port);
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + port;
+    }
+
+    void awaitHealthy(HttpClient httpClient, Duration timeout) {
+        httpClient.get()
+                .uri(baseUrl() + "/actuator/health")
+                .responseSingle((response, body) -> body.asString().defaultIfEmpty("")
+                        .map(content -> response.status().code() == 200 && content.contains("UP")))
+                .onErrorReturn(false)
+                .flatMap(healthy -> {
+                    if(!process.isAlive()) {
+                        return Mono.error(new IllegalStateException(name + " exited with code " + process.exitValue()));
+                    }
+                    return healthy ? Mono.just(true) : Mono.error(new IllegalStateException(name + " is not healthy yet"));
+                })
+                .retryWhen(Retry.fixedDelay(Long.MAX_VALUE, Duration.ofMillis(500))
+                        .filter(ex -> process.isAlive()))
+                .timeout(timeout)
+                .block();
+        log.info("{} is up", name);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy();
+        if(!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.reactivespring.loadtest;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Stands in for movies-info-service and movies-review-service in front of movies-service:
+ * most movie infos are answered after the fast delay, slowFraction of them after the slow one,
+ * like a replica in a GC pause. Reviews are always answered right away.
+ */
+final class SlowStub implements AutoCloseable {
+
+    private final DisposableServer server;
+
+    private SlowStub(DisposableServer server) {
+        this.server = server;
+    }
+
+    static SlowStub start(double slowFraction, Duration slow, Duration fast) {
+        var server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes
+                        .get("/v1/movieinfos/{id}", (request, response) -> response
+                                .header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                                .sendString(Mono.just(movieInfo(request.param("id")))
+                                        .delayElement(ThreadLocalRandom.current().nextDouble() < slowFraction ? slow : fast)))
+                        .get("/v1/reviews", (request, response) -> response
+                                .header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                                .sendString(Mono.just("[]"))))
+                .bindNow();
+        return new SlowStub(server);
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + server.port();
+    }
+
+    private static String movieInfo(String id) {
+        return "{\"movieInfoId\":\"" + id + "\",\"name\":\"Movie " + id + "\",\"year\":2005,"
+                + "\"cast\":[\"Christian Bale\"],\"release_date\":\"2005-06-15\"}";
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+    }
+}
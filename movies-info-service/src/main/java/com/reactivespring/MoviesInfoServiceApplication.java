@@ -2,11 +2,14 @@ package com.reactivespring;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import reactor.core.scheduler.Schedulers;
 
 @SpringBootApplication
 public class MoviesInfoServiceApplication {
 
     public static void main(String[] args) {
+        //before any scheduler is created, so that all of them report to the global meter registry
+        Schedulers.enableMetrics();
         SpringApplication.run(MoviesInfoServiceApplication.class, args);
     }
 
@@ -0,0 +1,71 @@
+package com.reactivespring.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Times the returned Mono/Flux of every repository method from subscription to termination,
+ * the method call itself only assembles the pipeline.
+ */
+public class RepositoryMetricsInterceptor implements MethodInterceptor {
+
+    static final String METRIC_NAME = "repository.invocations";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final String repository;
+
+    public RepositoryMetricsInterceptor(ObjectProvider<MeterRegistry> meterRegistry, String repository) {
+        this.meterRegistry = meterRegistry;
+        this.repository = repository;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        var result = invocation.proceed();
+        var registry = meterRegistry.getIfAvailable();
+        if(registry == null) {
+            return result;
+        }
+        var method = invocation.getMethod().getName();
+        if(result instanceof Mono) {
+            var mono = (Mono<?>) result;
+            return Mono.defer(() -> {
+                var sample = Timer.start(registry);
+                return mono.doFinally(signalType -> sample.stop(timer(registry, method, signalType)));
+            });
+        }
+        if(result instanceof Flux) {
+            var flux = (Flux<?>) result;
+            return Flux.defer(() -> {
+                var sample = Timer.start(registry);
+                return flux.doFinally(signalType -> sample.stop(timer(registry, method, signalType)));
+            });
+        }
+        return result;
+    }
+
+    private Timer timer(MeterRegistry registry, String method, SignalType signalType) {
+        return Timer.builder(METRIC_NAME)
+                .tag("repository", repository)
+                .tag("method", method)
+                .tag("outcome", outcome(signalType))
+                .register(registry);
+    }
+
+    private static String outcome(SignalType signalType) {
+        switch (signalType) {
+            case ON_ERROR:
+                return "error";
+            case CANCEL:
+                return "cancelled";
+            default:
+                return "success";
+        }
+    }
+}
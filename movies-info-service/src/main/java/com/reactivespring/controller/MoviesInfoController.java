@@ -1,17 +1,29 @@
 package com.reactivespring.controller;
 
+import com.reactivespring.config.CodecConfig;
+import com.reactivespring.domain.BulkResult;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoSuggestion;
 import com.reactivespring.repository.MovieInfoRepository;
+import com.reactivespring.service.MovieInfoBulkService;
 import com.reactivespring.service.MovieInfoService;
+import com.reactivespring.util.ContinuationToken;
+import com.reactivespring.util.ETags;
+import com.reactivespring.util.ReactiveTracer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import javax.validation.Valid;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/v1")
@@ -19,49 +31,158 @@ import javax.validation.Valid;
 public class MoviesInfoController {
 
     private final MovieInfoService movieInfoService;
+    private final MovieInfoBulkService movieInfoBulkService;
+    private final ReactiveTracer reactiveTracer;
 
-    public MoviesInfoController(MovieInfoService movieInfoService) {
+    public MoviesInfoController(MovieInfoService movieInfoService, MovieInfoBulkService movieInfoBulkService,
+                                ReactiveTracer reactiveTracer) {
         this.movieInfoService = movieInfoService;
+        this.movieInfoBulkService = movieInfoBulkService;
+        this.reactiveTracer = reactiveTracer;
     }
 
     @GetMapping("/movieinfos")
     public Flux<MovieInfo> getAllMovieInfos(@RequestParam(value = "year", required = false) Integer year,
                                             @RequestParam(value = "name", required = false) String name) {
-        log.info("Year is : {} ", year);
+        log.debug("Year is : {} ", year);
         if(year!=null) {
-            return movieInfoService.getMovieInfosByYear(year);
+            return movieInfoService.getMovieInfosByYear(year)
+                    .transformDeferred(reactiveTracer.flux("movieinfos.get-by-year"));
         }
-        return movieInfoService.getAllMovieInfos().log();
+        if(name!=null) {
+            //exact match, prefixes go to /movieinfos/suggest
+            return movieInfoService.getMovieInfosByName(name)
+                    .flux()
+                    .transformDeferred(reactiveTracer.flux("movieinfos.get-by-name"));
+        }
+        return movieInfoService.getAllMovieInfos()
+                .transformDeferred(reactiveTracer.flux("movieinfos.get-all"));
+    }
+
+    @GetMapping(value = "/movieinfos", params = {"limit", "!cast"})
+    public Mono<ResponseEntity<List<MovieInfo>>> getMovieInfosPage(@RequestParam(value = "after", required = false) String after,
+                                                                   @RequestParam("limit") int limit) {
+        var pageSize = ContinuationToken.pageSize(limit);
+        var afterId = after != null ? ContinuationToken.decode(after) : null;
+        return toPage(movieInfoService.getMovieInfosPage(afterId, pageSize), pageSize);
+    }
+
+    //match=all pages through the movies featuring every listed cast member, match=any through those featuring one of them
+    @GetMapping(value = "/movieinfos", params = "cast")
+    public Mono<ResponseEntity<List<MovieInfo>>> getMovieInfosByCast(@RequestParam("cast") List<String> cast,
+                                                                     @RequestParam(value = "match", defaultValue = "all") String match,
+                                                                     @RequestParam(value = "after", required = false) String after,
+                                                                     @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        var castMembers = cast.stream()
+                .map(String::trim)
+                .filter(member -> !member.isEmpty())
+                .distinct()
+                .collect(Collectors.toList());
+        if (castMembers.isEmpty()) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "cast must not be empty"));
+        }
+        if (!match.equals("all") && !match.equals("any")) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "match must be all or any"));
+        }
+        var pageSize = ContinuationToken.pageSize(limit);
+        var afterId = after != null ? ContinuationToken.decode(after) : null;
+        return toPage(movieInfoService.getMovieInfosByCast(castMembers, match.equals("all"), afterId, pageSize), pageSize)
+                .transformDeferred(reactiveTracer.mono("movieinfos.get-by-cast"));
+    }
+
+    //a full page carries the token of the next one
+    private static Mono<ResponseEntity<List<MovieInfo>>> toPage(Flux<MovieInfo> movieInfos, int pageSize) {
+        return movieInfos
+                .collectList()
+                .map(page -> {
+                    var response = ResponseEntity.ok();
+                    if (page.size() == pageSize) {
+                        var lastId = page.get(page.size() - 1).getMovieInfoId();
+                        response.header(ContinuationToken.HEADER, ContinuationToken.encode(lastId));
+                    }
+                    return response.body(page);
+                });
     }
 
+    @GetMapping(value = "/movieinfos", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<MovieInfo> streamAllMovieInfos(@RequestParam(value = "year", required = false) Integer year,
+                                               @RequestParam(value = "name", required = false) String name) {
+        //written one document per line as it is read, instead of being collected into a single JSON array
+        return getAllMovieInfos(year, name);
+    }
+
+    //a matching If-None-Match gets a 304 from the result handler, the body is never written
     @GetMapping("/movieinfos/{id}")
-    public Mono<ResponseEntity<MovieInfo>> getAllMovieInfosById(@PathVariable String id) {
+    public Mono<ResponseEntity<MovieInfo>> getAllMovieInfosById(@PathVariable String id, @RequestHeader HttpHeaders headers) {
         return movieInfoService.getMovieInfosById(id)
-                .map(ResponseEntity.ok()::body)
+                .map(movieInfo -> versioned(id, movieInfo, headers))
                 .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()))
-                .log();
+                .transformDeferred(reactiveTracer.mono("movieinfos.get-by-id"));
+    }
+
+
+    //served from the in-memory name index, cheap enough to be called on every keystroke
+    @GetMapping("/movieinfos/suggest")
+    public Flux<MovieInfoSuggestion> suggestMovieInfos(@RequestParam("prefix") String prefix,
+                                                       @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        if (limit <= 0) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be a positive value"));
+        }
+        return Flux.fromIterable(movieInfoService.suggestMovieInfos(prefix, limit));
     }
 
+    @PostMapping("/movieinfos:batchGet")
+    public Flux<MovieInfo> batchGetMovieInfos(@RequestBody List<String> ids) {
+        return movieInfoService.getMovieInfosByIds(ids);
+    }
 
     @PostMapping("/movieinfos")
     @ResponseStatus(HttpStatus.CREATED)
     public Mono<MovieInfo> addMovieInfo(@Valid @RequestBody MovieInfo movieInfo ) {
-        return movieInfoService.addMovieInfo(movieInfo).log();
+        return movieInfoService.addMovieInfo(movieInfo)
+                .transformDeferred(reactiveTracer.mono("movieinfos.add"));
     }
 
-   @PutMapping("/movieinfos/{id}")
-        public Mono<ResponseEntity<MovieInfo>> updateMovieInfo(@RequestBody MovieInfo movieInfo, @PathVariable String id) {
-            return movieInfoService.updateMovieInfo(movieInfo, id)
-                    .map(ResponseEntity.ok()::body)
-                    .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()))
-                    .log();
+    //one JSON record per line in, one BulkResult per line out
+    @PostMapping(value = "/movieinfos:bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BulkResult> bulkUpsertMovieInfos(@RequestBody Flux<MovieInfo> movieInfos) {
+        return movieInfoBulkService.upsertMovieInfos(movieInfos);
     }
 
-    @DeleteMapping("/movieinfos/{id}")
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public Mono<Void> deleteMovieInfo(@PathVariable String id) {
-        return movieInfoService.deleteMovieInfo(id).log();
+    @PutMapping("/movieinfos/{id}")
+    public Mono<ResponseEntity<MovieInfo>> updateMovieInfo(@RequestBody MovieInfo movieInfo, @PathVariable String id,
+                                                           @RequestHeader HttpHeaders headers) {
+        return movieInfoService.updateMovieInfo(movieInfo, id, ETags.expectedVersion(headers.getFirst(HttpHeaders.IF_MATCH), id))
+                .map(updatedMovieInfo -> versioned(id, updatedMovieInfo, headers))
+                .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()))
+                .transformDeferred(reactiveTracer.mono("movieinfos.update"));
     }
 
+    //the fields left out of the body keep their stored value
+    @PatchMapping("/movieinfos/{id}")
+    public Mono<ResponseEntity<MovieInfo>> patchMovieInfo(@RequestBody MovieInfo movieInfo, @PathVariable String id,
+                                                          @RequestHeader HttpHeaders headers) {
+        return movieInfoService.patchMovieInfo(movieInfo, id, ETags.expectedVersion(headers.getFirst(HttpHeaders.IF_MATCH), id))
+                .map(patchedMovieInfo -> versioned(id, patchedMovieInfo, headers))
+                .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()))
+                .transformDeferred(reactiveTracer.mono("movieinfos.patch"));
+    }
+
+    //the representation is picked here so the ETag can name it, JSON and Smile of the same version get different tags
+    private static ResponseEntity<MovieInfo> versioned(String id, MovieInfo movieInfo, HttpHeaders requestHeaders) {
+        var representation = CodecConfig.responseType(requestHeaders.getAccept());
+        return ResponseEntity.ok()
+                .contentType(representation)
+                .eTag(ETags.of(id, movieInfo.getVersion(), representation))
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(movieInfo);
+    }
 
+    @DeleteMapping("/movieinfos/{id}")
+    public Mono<ResponseEntity<Void>> deleteMovieInfo(@PathVariable String id) {
+        return movieInfoService.deleteMovieInfo(id)
+                .map(deleted -> ResponseEntity.noContent().<Void>build())
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .transformDeferred(reactiveTracer.mono("movieinfos.delete"));
+    }
 }
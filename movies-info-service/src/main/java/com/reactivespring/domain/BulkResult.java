@@ -0,0 +1,26 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.http.HttpStatus;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkResult {
+
+    //position of the record in the request body
+    private long index;
+    private String id;
+    private int status;
+    private String message;
+
+    public static BulkResult of(long index, String id, HttpStatus status) {
+        return new BulkResult(index, id, status.value(), null);
+    }
+
+    public static BulkResult failed(long index, String id, HttpStatus status, String message) {
+        return new BulkResult(index, id, status.value(), message);
+    }
+}
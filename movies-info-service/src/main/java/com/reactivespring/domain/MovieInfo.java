@@ -5,6 +5,9 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import javax.validation.constraints.NotBlank;
@@ -17,16 +20,26 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document
+//multikey on cast, _id keeps the movies of a cast member in page order without a sort
+@CompoundIndex(name = "cast_id", def = "{'cast': 1, '_id': 1}")
 public class MovieInfo {
 
     @Id
     private String movieInfoId;
     @NotBlank(message="movieInfo.name must be present")
+    @Indexed(unique = true)
     private String name;
     @NotNull @Positive(message = "movieInfo.year must be a Positive Value")
+    @Indexed
     private Integer year;
 
     private List<@NotBlank(message="movieInfo.cast must be present") String> cast;
     private LocalDate release_date;
+    //bumped by every save, a save from a stale copy fails with OptimisticLockingFailureException
+    @Version
+    private Long version;
 
+    public MovieInfo(String movieInfoId, String name, Integer year, List<String> cast, LocalDate release_date) {
+        this(movieInfoId, name, year, cast, release_date, null);
+    }
 }
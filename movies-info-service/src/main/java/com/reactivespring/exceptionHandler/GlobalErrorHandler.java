@@ -2,6 +2,8 @@ package com.reactivespring.exceptionHandler;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -24,4 +26,17 @@ public class GlobalErrorHandler {
         log.error("Error is : {}", error);
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
     }
+
+    @ExceptionHandler(DuplicateKeyException.class)
+    public ResponseEntity<String> handleDuplicateKeyError(DuplicateKeyException ex) {
+        log.error("Exception Caught in handleDuplicateKeyError : {}", ex.getMessage(), ex);
+        return ResponseEntity.status(HttpStatus.CONFLICT).body("movieInfo.name must be unique");
+    }
+
+    //If-Match named an older version than the stored one
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleOptimisticLockingError(OptimisticLockingFailureException ex) {
+        log.info("Exception Caught in handleOptimisticLockingError : {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body("movieInfo was modified, fetch it again");
+    }
 }
@@ -0,0 +1,110 @@
+package com.reactivespring.repository;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import com.reactivespring.domain.BulkResult;
+import com.reactivespring.domain.MovieInfo;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mapping.PropertyHandler;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Writes a batch of movie infos with a single unordered bulkWrite, a failing record doesn't stop the others.
+ */
+@Repository
+public class MovieInfoBulkRepository {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public MovieInfoBulkRepository(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    //records with an id replace the stored document or are inserted with it, the others get a new ObjectId
+    public Flux<BulkResult> upsertAll(List<Tuple2<Long, MovieInfo>> records) {
+        var models = new ArrayList<WriteModel<Document>>(records.size());
+        for(var record : records) {
+            var movieInfo = record.getT2();
+            var document = new Document();
+            if(movieInfo.getMovieInfoId() == null) {
+                movieInfo.setMovieInfoId(new ObjectId().toHexString());
+                movieInfo.setVersion(0L);
+                reactiveMongoTemplate.getConverter().write(movieInfo, document);
+                models.add(new InsertOneModel<>(document));
+            } else {
+                movieInfo.setVersion(null);
+                reactiveMongoTemplate.getConverter().write(movieInfo, document);
+                models.add(new UpdateOneModel<>(Filters.eq("_id", document.remove("_id")), replacing(document),
+                        new UpdateOptions().upsert(true)));
+            }
+        }
+
+        return reactiveMongoTemplate.getCollection(reactiveMongoTemplate.getCollectionName(MovieInfo.class))
+                .flatMap(collection -> Mono.from(collection.bulkWrite(models, new BulkWriteOptions().ordered(false))))
+                .map(bulkWriteResult -> toResults(records, models, bulkWriteResult, Map.of()))
+                .onErrorResume(MongoBulkWriteException.class, ex -> Mono.just(toResults(records, models, ex.getWriteResult(),
+                        ex.getWriteErrors().stream().collect(Collectors.toMap(BulkWriteError::getIndex, Function.identity())))))
+                .flatMapIterable(Function.identity());
+    }
+
+    //a replace that keeps the version counting, so ETags and If-Match see the change
+    private Document replacing(Document document) {
+        var persistentEntity = reactiveMongoTemplate.getConverter().getMappingContext().getRequiredPersistentEntity(MovieInfo.class);
+        persistentEntity.doWithProperties((PropertyHandler<MongoPersistentProperty>) property -> {
+            if(!property.isIdProperty() && !property.isVersionProperty()) {
+                //null fields aren't written, they have to be cleared explicitly
+                document.putIfAbsent(property.getFieldName(), null);
+            }
+        });
+        return new Document("$set", document)
+                .append("$inc", new Document(persistentEntity.getRequiredVersionProperty().getFieldName(), 1L));
+    }
+
+    private static List<BulkResult> toResults(List<Tuple2<Long, MovieInfo>> records, List<WriteModel<Document>> models,
+                                              BulkWriteResult bulkWriteResult, Map<Integer, BulkWriteError> errors) {
+        Set<Integer> upserted = bulkWriteResult.getUpserts().stream()
+                .map(BulkWriteUpsert::getIndex)
+                .collect(Collectors.toSet());
+
+        var results = new ArrayList<BulkResult>(records.size());
+        for(int i = 0; i < records.size(); i++) {
+            var index = records.get(i).getT1();
+            var id = records.get(i).getT2().getMovieInfoId();
+            var error = errors.get(i);
+            if(error != null) {
+                results.add(error.getCode() == DUPLICATE_KEY
+                        ? BulkResult.failed(index, id, HttpStatus.CONFLICT, "movieInfo.name must be unique")
+                        : BulkResult.failed(index, id, HttpStatus.INTERNAL_SERVER_ERROR, error.getMessage()));
+            } else if(models.get(i) instanceof InsertOneModel || upserted.contains(i)) {
+                results.add(BulkResult.of(index, id, HttpStatus.CREATED));
+            } else {
+                results.add(BulkResult.of(index, id, HttpStatus.OK));
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,43 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.MovieInfo;
+import org.bson.BsonType;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.util.Collection;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Pages through the movies of one or more cast members on the {cast, _id} index.
+ * With several cast members, matchAll asks for movies featuring all of them ($all) instead of any of them ($in).
+ */
+@Repository
+public class MovieInfoCastRepository {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public MovieInfoCastRepository(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    public Flux<MovieInfo> findByCast(Collection<String> cast, boolean matchAll, String afterId, int limit) {
+        var criteria = matchAll ? where("cast").all(cast) : where("cast").in(cast);
+        if (afterId != null) {
+            criteria = ObjectId.isValid(afterId)
+                    ? criteria.and("movieInfoId").gt(afterId)
+                    //ids that are not ObjectIds are stored as strings, which sort before every ObjectId
+                    : criteria.orOperator(where("movieInfoId").gt(afterId),
+                            where("movieInfoId").type(BsonType.OBJECT_ID.getValue()));
+        }
+        var query = Query.query(criteria)
+                .with(Sort.by("movieInfoId"))
+                .limit(limit);
+        return reactiveMongoTemplate.find(query, MovieInfo.class);
+    }
+}
@@ -1,6 +1,8 @@
 package com.reactivespring.repository;
 
 import com.reactivespring.domain.MovieInfo;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -10,5 +12,17 @@ public interface MovieInfoRepository extends ReactiveMongoRepository<MovieInfo,
     Flux<MovieInfo> findByYear(Integer year);
     Mono<MovieInfo> findByName(String name);
 
+    Flux<MovieInfo> findAllBy(Pageable pageable);
+
+    Flux<MovieInfo> findByMovieInfoIdGreaterThan(String movieInfoId, Pageable pageable);
+
+    //ids that are not ObjectIds are stored as strings, which sort before every ObjectId
+    @Query("{ '$or': [ { '_id': { '$gt': ?0 } }, { '_id': { '$type': 'objectId' } } ] }")
+    Flux<MovieInfo> findByStringMovieInfoIdGreaterThan(String movieInfoId, Pageable pageable);
+
+    //streams only what MovieInfoNameIndex keeps
+    @Query(value = "{}", fields = "{ 'name': 1, 'year': 1 }")
+    Flux<MovieInfo> findAllNames();
+
 
 }
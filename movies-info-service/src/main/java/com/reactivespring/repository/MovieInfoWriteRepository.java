@@ -0,0 +1,58 @@
+package com.reactivespring.repository;
+
+import com.mongodb.client.result.DeleteResult;
+import com.reactivespring.domain.MovieInfo;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Updates and deletes a movieInfo in a single round trip with findAndModify and deleteOne,
+ * instead of reading it first and writing the whole document back.
+ */
+@Repository
+public class MovieInfoWriteRepository {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public MovieInfoWriteRepository(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    //the movieInfo as it was before the $set, its cache entries by year and name are stale as well
+    public Mono<MovieInfo> findAndSet(String id, Long expectedVersion, Map<String, Object> fields) {
+        var update = new Update();
+        fields.forEach(update::set);
+        update.inc("version", 1);
+        var query = Query.query(where("movieInfoId").is(id));
+        if (expectedVersion != null) {
+            query.addCriteria(where("version").is(expectedVersion));
+        }
+        return reactiveMongoTemplate.findAndModify(query, update, MovieInfo.class)
+                .switchIfEmpty(notFoundOrConflict(id, expectedVersion));
+    }
+
+    //the deleted count tells a missing movieInfo apart
+    public Mono<Long> deleteById(String id) {
+        return reactiveMongoTemplate.remove(Query.query(where("movieInfoId").is(id)), MovieInfo.class)
+                .map(DeleteResult::getDeletedCount);
+    }
+
+    //only a conditional update that matched nothing pays for a second round trip
+    private Mono<MovieInfo> notFoundOrConflict(String id, Long expectedVersion) {
+        if (expectedVersion == null) {
+            return Mono.empty();
+        }
+        return reactiveMongoTemplate.exists(Query.query(where("movieInfoId").is(id)), MovieInfo.class)
+                .flatMap(exists -> exists
+                        ? Mono.error(new OptimisticLockingFailureException("movieInfo " + id + " is not at version " + expectedVersion))
+                        : Mono.empty());
+    }
+}
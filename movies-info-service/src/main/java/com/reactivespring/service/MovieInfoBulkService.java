@@ -0,0 +1,78 @@
+package com.reactivespring.service;
+
+import com.reactivespring.domain.BulkResult;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.repository.MovieInfoBulkRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.util.function.Tuple2;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Service
+public class MovieInfoBulkService {
+
+    private final MovieInfoBulkRepository movieInfoBulkRepository;
+    private final MovieInfoCache movieInfoCache;
+    private final MovieInfoNameIndex movieInfoNameIndex;
+    private final Validator validator;
+    private final int batchSize;
+
+    public MovieInfoBulkService(MovieInfoBulkRepository movieInfoBulkRepository, MovieInfoCache movieInfoCache,
+                                MovieInfoNameIndex movieInfoNameIndex, Validator validator,
+                                @Value("${movieinfo.bulk.batch-size:500}") int batchSize) {
+        this.movieInfoBulkRepository = movieInfoBulkRepository;
+        this.movieInfoCache = movieInfoCache;
+        this.movieInfoNameIndex = movieInfoNameIndex;
+        this.validator = validator;
+        this.batchSize = batchSize;
+    }
+
+    public Flux<BulkResult> upsertMovieInfos(Flux<MovieInfo> movieInfos) {
+        return movieInfos
+                .index()
+                .buffer(batchSize)
+                //one batch in flight: the request body is only read as fast as mongo writes the batches
+                .concatMap(this::writeBatch, 1);
+    }
+
+    private Flux<BulkResult> writeBatch(List<Tuple2<Long, MovieInfo>> batch) {
+        var invalid = new ArrayList<BulkResult>();
+        var valid = new ArrayList<Tuple2<Long, MovieInfo>>(batch.size());
+        for(var record : batch) {
+            var violations = validator.validate(record.getT2());
+            if(violations.isEmpty()) {
+                valid.add(record);
+            } else {
+                invalid.add(BulkResult.failed(record.getT1(), record.getT2().getMovieInfoId(), HttpStatus.BAD_REQUEST,
+                        violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining(","))));
+            }
+        }
+
+        var validByIndex = valid.stream().collect(Collectors.toMap(Tuple2::getT1, Tuple2::getT2));
+        var written = valid.isEmpty()
+                ? Flux.<BulkResult>empty()
+                //a whole batch touches too many ids, years and names to invalidate them one by one
+                : movieInfoBulkRepository.upsertAll(valid)
+                        .doOnNext(result -> indexWritten(validByIndex, result))
+                        .doOnComplete(movieInfoCache::invalidateAll);
+        return Flux.fromIterable(invalid)
+                .concatWith(written)
+                .sort(Comparator.comparingLong(BulkResult::getIndex));
+    }
+
+    private void indexWritten(Map<Long, MovieInfo> records, BulkResult result) {
+        var movieInfo = records.get(result.getIndex());
+        if(movieInfo != null && HttpStatus.valueOf(result.getStatus()).is2xxSuccessful()) {
+            movieInfoNameIndex.put(movieInfo);
+        }
+    }
+}
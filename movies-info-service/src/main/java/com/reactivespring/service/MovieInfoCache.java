@@ -0,0 +1,119 @@
+package com.reactivespring.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.reactivespring.domain.MovieInfo;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Read-through cache for MovieInfo lookups.
+ * Loads are asynchronous, so concurrent misses on a key share the pending load and no thread is blocked.
+ * Empty results are not cached.
+ */
+@Component
+public class MovieInfoCache implements MeterBinder {
+
+    private final AsyncCache<String, MovieInfo> byId;
+    private final AsyncCache<Integer, List<MovieInfo>> byYear;
+    private final AsyncCache<String, MovieInfo> byName;
+    //lookups that joined a load already in flight for their key
+    private final LongAdder coalescedById = new LongAdder();
+    private final LongAdder coalescedByYear = new LongAdder();
+    private final LongAdder coalescedByName = new LongAdder();
+
+    public MovieInfoCache(@Value("${movieinfo.cache.maximum-size:10000}") long maximumSize,
+                          @Value("${movieinfo.cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.byId = newCache(maximumSize, expireAfterWrite);
+        this.byYear = newCache(maximumSize, expireAfterWrite);
+        this.byName = newCache(maximumSize, expireAfterWrite);
+    }
+
+    private static <K, V> AsyncCache<K, V> newCache(long maximumSize, Duration expireAfterWrite) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .buildAsync();
+    }
+
+    public Mono<MovieInfo> getById(String id, Function<String, Mono<MovieInfo>> loader) {
+        return get(byId, coalescedById, id, loader);
+    }
+
+    public Mono<List<MovieInfo>> getByYear(Integer year, Function<Integer, Mono<List<MovieInfo>>> loader) {
+        return get(byYear, coalescedByYear, year, loader);
+    }
+
+    public Mono<MovieInfo> getByName(String name, Function<String, Mono<MovieInfo>> loader) {
+        return get(byName, coalescedByName, name, loader);
+    }
+
+    private static <K, V> Mono<V> get(AsyncCache<K, V> cache, LongAdder coalesced, K key, Function<K, Mono<V>> loader) {
+        return Mono.defer(() -> {
+            var loading = new boolean[1];
+            //an empty Mono completes the future with null, which Caffeine discards instead of caching
+            var future = cache.get(key, (k, executor) -> {
+                loading[0] = true;
+                return loader.apply(k).toFuture();
+            });
+            if (!loading[0] && !future.isDone()) {
+                coalesced.increment();
+            }
+            return Mono.fromFuture(future);
+        });
+    }
+
+    //an update without @Valid can leave any of the keys null, Caffeine rejects null keys
+    public void invalidate(MovieInfo movieInfo) {
+        invalidate(byId, movieInfo.getMovieInfoId());
+        invalidate(byYear, movieInfo.getYear());
+        invalidate(byName, movieInfo.getName());
+    }
+
+    private static <K, V> void invalidate(AsyncCache<K, V> cache, K key) {
+        if (key != null) {
+            cache.synchronous().invalidate(key);
+        }
+    }
+
+    public void invalidateById(String id) {
+        byId.synchronous().invalidate(id);
+        //year and name of the removed document are unknown here
+        byYear.synchronous().invalidateAll();
+        byName.synchronous().invalidateAll();
+    }
+
+    public void invalidateAll() {
+        byId.synchronous().invalidateAll();
+        byYear.synchronous().invalidateAll();
+        byName.synchronous().invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, byId, "movieinfo.byId");
+        CaffeineCacheMetrics.monitor(registry, byYear, "movieinfo.byYear");
+        CaffeineCacheMetrics.monitor(registry, byName, "movieinfo.byName");
+        monitorCoalesced(registry, coalescedById, "movieinfo.byId");
+        monitorCoalesced(registry, coalescedByYear, "movieinfo.byYear");
+        monitorCoalesced(registry, coalescedByName, "movieinfo.byName");
+    }
+
+    private static void monitorCoalesced(MeterRegistry registry, LongAdder coalesced, String cacheName) {
+        FunctionCounter.builder("movieinfo.lookups.coalesced", coalesced, LongAdder::sum)
+                .tag("cache", cacheName)
+                .description("lookups served by a load already in flight for the same key")
+                .register(registry);
+    }
+}
@@ -0,0 +1,116 @@
+package com.reactivespring.service;
+
+import com.mongodb.client.model.changestream.FullDocument;
+import com.reactivespring.domain.MovieInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonTimestamp;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+
+/**
+ * Listens to the change stream of the movieInfo collection, so writes done by any instance
+ * evict the entries of this instance's {@link MovieInfoCache} and update its {@link MovieInfoNameIndex}.
+ * Change streams need a replica set, a single node one is enough.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "movieinfo.cache.change-stream.enabled", havingValue = "true")
+public class MovieInfoChangeStreamListener {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final MovieInfoCache movieInfoCache;
+    private final MovieInfoNameIndex movieInfoNameIndex;
+    private Disposable subscription;
+
+    public MovieInfoChangeStreamListener(ReactiveMongoTemplate reactiveMongoTemplate, MovieInfoCache movieInfoCache,
+                                         MovieInfoNameIndex movieInfoNameIndex) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.movieInfoCache = movieInfoCache;
+        this.movieInfoNameIndex = movieInfoNameIndex;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        subscription = Flux.defer(this::changeEvents)
+                //an invalidate event (collection dropped or renamed) completes the stream, it is reopened like a failed one
+                .concatWith(Mono.error(() -> new IllegalStateException("the change stream was invalidated")))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .transientErrors(true)
+                        .doBeforeRetry(retrySignal -> log.warn("MovieInfo change stream failed, retrying : {}",
+                                retrySignal.failure().getMessage())))
+                .subscribe(this::onChange);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    /**
+     * Events may have been missed while the stream was down, so each time it is opened the cache is cleared
+     * and the name index rebuilt. The stream starts at the cluster time taken before that, the writes landing
+     * until its cursor is open are delivered too.
+     */
+    private Flux<ChangeStreamEvent<MovieInfo>> changeEvents() {
+        var collectionName = reactiveMongoTemplate.getCollectionName(MovieInfo.class);
+        return currentOperationTime()
+                .doOnNext(operationTime -> {
+                    movieInfoCache.invalidateAll();
+                    movieInfoNameIndex.rebuild();
+                })
+                .flatMapMany(operationTime -> reactiveMongoTemplate.changeStream(collectionName,
+                        ChangeStreamOptions.builder()
+                                //updates carry only the changed fields, the name index needs the whole document
+                                .fullDocumentLookup(FullDocument.UPDATE_LOOKUP)
+                                .resumeAt(operationTime)
+                                .build(),
+                        MovieInfo.class));
+    }
+
+    private Mono<BsonTimestamp> currentOperationTime() {
+        return reactiveMongoTemplate.executeCommand(new Document("ping", 1))
+                .flatMap(reply -> Mono.justOrEmpty(reply.get("operationTime", BsonTimestamp.class)))
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException("no operationTime in the ping reply, is mongo a replica set?")));
+    }
+
+    private void onChange(ChangeStreamEvent<MovieInfo> event) {
+        var raw = event.getRaw();
+        if (raw == null || raw.getDocumentKey() == null) {
+            //drop, rename and invalidate events are not about a single document, the name index is rebuilt
+            //when the stream is reopened after them
+            movieInfoCache.invalidateAll();
+            return;
+        }
+        var id = toId(raw.getDocumentKey().get("_id"));
+        log.debug("MovieInfo change : {} {}", event.getOperationType(), id);
+        movieInfoCache.invalidateById(id);
+        //no body for deletes, nor for updates of a document deleted before the lookup
+        var movieInfo = event.getBody();
+        if (movieInfo != null) {
+            movieInfoNameIndex.put(movieInfo);
+        } else {
+            movieInfoNameIndex.remove(id);
+        }
+    }
+
+    private static String toId(BsonValue id) {
+        return id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.asString().getValue();
+    }
+}
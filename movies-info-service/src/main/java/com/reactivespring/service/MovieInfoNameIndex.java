@@ -0,0 +1,187 @@
+package com.reactivespring.service;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoSuggestion;
+import com.reactivespring.repository.MovieInfoRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PreDestroy;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory prefix index of the MovieInfo names, so the search box suggestions never query mongo.
+ * Names are normalized (case, accents and spaces) and kept sorted, a prefix lookup is a range scan of a skip list.
+ * It is loaded by a scan of the names at startup and kept up to date by the writes going through this instance.
+ */
+@Component
+@Slf4j
+public class MovieInfoNameIndex implements MeterBinder {
+
+    public static final int MAX_SUGGESTIONS = 50;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+    //sorts before every character a name can continue with, so "batman" comes before "batman begins"
+    private static final char ID_SEPARATOR = '\u0000';
+
+    private final MovieInfoRepository movieInfoRepository;
+    private volatile Entries entries = new Entries();
+    //serializes the writes with the swap of a rebuilt index, reads don't take it
+    private final Object writeLock = new Object();
+    private Rebuild rebuilding;
+
+    public MovieInfoNameIndex(MovieInfoRepository movieInfoRepository) {
+        this.movieInfoRepository = movieInfoRepository;
+    }
+
+    public List<MovieInfoSuggestion> suggest(String prefix, int limit) {
+        var normalizedPrefix = normalize(prefix);
+        if (normalizedPrefix.isEmpty()) {
+            return List.of();
+        }
+        return entries.byName.subMap(normalizedPrefix, true, normalizedPrefix + Character.MAX_VALUE, false)
+                .values()
+                .stream()
+                .limit(Math.min(limit, MAX_SUGGESTIONS))
+                .collect(Collectors.toList());
+    }
+
+    public void put(MovieInfo movieInfo) {
+        write(entries -> entries.put(movieInfo));
+    }
+
+    public void remove(String id) {
+        write(entries -> entries.remove(id));
+    }
+
+    public int size() {
+        return entries.keysById.size();
+    }
+
+    private void write(Consumer<Entries> write) {
+        synchronized (writeLock) {
+            write.accept(entries);
+            //the scan may have read the document before this write, it is applied again once the scan is done
+            if (rebuilding != null) {
+                rebuilding.pendingWrites.add(write);
+            }
+        }
+    }
+
+    /**
+     * Replaces the index with a fresh scan of the names, a rebuild started later supersedes this one.
+     * Writes landing while the scan runs are replayed on the rebuilt index before it is swapped in.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        var rebuild = new Rebuild();
+        synchronized (writeLock) {
+            if (rebuilding != null) {
+                rebuilding.subscription.dispose();
+            }
+            rebuilding = rebuild;
+        }
+        rebuild.subscription.update(movieInfoRepository.findAllNames()
+                .doOnNext(rebuild.entries::put)
+                .then(Mono.fromRunnable(() -> swap(rebuild)))
+                .subscribe(null, ex -> {
+                    log.error("Unable to load the MovieInfo name index", ex);
+                    synchronized (writeLock) {
+                        if (rebuilding == rebuild) {
+                            rebuilding = null;
+                        }
+                    }
+                }));
+    }
+
+    private void swap(Rebuild rebuild) {
+        synchronized (writeLock) {
+            if (rebuilding != rebuild) {
+                return;
+            }
+            rebuild.pendingWrites.forEach(write -> write.accept(rebuild.entries));
+            entries = rebuild.entries;
+            rebuilding = null;
+        }
+        log.info("MovieInfo name index loaded with {} names", rebuild.entries.keysById.size());
+    }
+
+    @PreDestroy
+    public void stop() {
+        synchronized (writeLock) {
+            if (rebuilding != null) {
+                rebuilding.subscription.dispose();
+                rebuilding = null;
+            }
+        }
+    }
+
+    static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+        var withoutAccents = MARKS.matcher(Normalizer.normalize(name, Normalizer.Form.NFD)).replaceAll("");
+        return SPACES.matcher(withoutAccents.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("movieinfo.name-index.size", this, MovieInfoNameIndex::size)
+                .description("MovieInfo names in the suggestion index")
+                .register(registry);
+    }
+
+    private static class Rebuild {
+
+        private final Entries entries = new Entries();
+        private final List<Consumer<Entries>> pendingWrites = new ArrayList<>();
+        private final Disposable.Swap subscription = Disposables.swap();
+    }
+
+    private static class Entries {
+
+        private final ConcurrentSkipListMap<String, MovieInfoSuggestion> byName = new ConcurrentSkipListMap<>();
+        private final ConcurrentHashMap<String, String> keysById = new ConcurrentHashMap<>();
+
+        void put(MovieInfo movieInfo) {
+            var id = movieInfo.getMovieInfoId();
+            if (id == null || movieInfo.getName() == null) {
+                return;
+            }
+            var key = normalize(movieInfo.getName()) + ID_SEPARATOR + id;
+            var suggestion = new MovieInfoSuggestion(id, movieInfo.getName(), movieInfo.getYear());
+            //compute serializes the writes of an id, a renamed movie never shows up under both names
+            keysById.compute(id, (movieInfoId, previousKey) -> {
+                if (previousKey != null && !previousKey.equals(key)) {
+                    byName.remove(previousKey);
+                }
+                byName.put(key, suggestion);
+                return key;
+            });
+        }
+
+        void remove(String id) {
+            keysById.computeIfPresent(id, (movieInfoId, previousKey) -> {
+                byName.remove(previousKey);
+                return null;
+            });
+        }
+    }
+}
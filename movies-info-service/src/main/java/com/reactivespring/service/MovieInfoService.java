@@ -1,51 +1,145 @@
 package com.reactivespring.service;
 
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoSuggestion;
+import com.reactivespring.repository.MovieInfoCastRepository;
 import com.reactivespring.repository.MovieInfoRepository;
+import com.reactivespring.repository.MovieInfoWriteRepository;
+import com.reactivespring.util.ReactiveTracer;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
 @Service
 public class MovieInfoService {
 
     private final MovieInfoRepository movieInfoRepository;
+    private final MovieInfoWriteRepository movieInfoWriteRepository;
+    private final MovieInfoCastRepository movieInfoCastRepository;
+    private final MovieInfoCache movieInfoCache;
+    private final MovieInfoNameIndex movieInfoNameIndex;
+    private final ReactiveTracer reactiveTracer;
 
-    public MovieInfoService(MovieInfoRepository movieInfoRepository) {
+    public MovieInfoService(MovieInfoRepository movieInfoRepository, MovieInfoWriteRepository movieInfoWriteRepository,
+                            MovieInfoCastRepository movieInfoCastRepository, MovieInfoCache movieInfoCache, MovieInfoNameIndex movieInfoNameIndex,
+                            ReactiveTracer reactiveTracer) {
         this.movieInfoRepository = movieInfoRepository;
+        this.movieInfoWriteRepository = movieInfoWriteRepository;
+        this.movieInfoCastRepository = movieInfoCastRepository;
+        this.movieInfoCache = movieInfoCache;
+        this.movieInfoNameIndex = movieInfoNameIndex;
+        this.reactiveTracer = reactiveTracer;
     }
 
     public Mono<MovieInfo> addMovieInfo(MovieInfo movieInfo) {
-        return movieInfoRepository.save(movieInfo);
+        return movieInfoRepository.save(movieInfo)
+                .doOnNext(movieInfoCache::invalidate)
+                .doOnNext(movieInfoNameIndex::put);
     }
 
     public Flux<MovieInfo> getAllMovieInfos() {
         return movieInfoRepository.findAll();
     }
 
+    public Flux<MovieInfo> getMovieInfosPage(String afterId, int limit) {
+        var pageable = PageRequest.of(0, limit, Sort.by("movieInfoId"));
+        if (afterId == null) {
+            return movieInfoRepository.findAllBy(pageable);
+        }
+        if (ObjectId.isValid(afterId)) {
+            return movieInfoRepository.findByMovieInfoIdGreaterThan(afterId, pageable);
+        }
+        return movieInfoRepository.findByStringMovieInfoIdGreaterThan(afterId, pageable);
+    }
+
+    public Flux<MovieInfo> getMovieInfosByCast(List<String> cast, boolean matchAll, String afterId, int limit) {
+        return movieInfoCastRepository.findByCast(cast, matchAll, afterId, limit);
+    }
+
     public Mono<MovieInfo> getMovieInfosById(String id) {
-        return movieInfoRepository.findById(id).log();
+        //concurrent misses on the same id share a single findById
+        return movieInfoCache.getById(id, movieInfoRepository::findById)
+                .transformDeferred(reactiveTracer.mono("movieinfo-service.get-by-id"));
+    }
+
+    public Flux<MovieInfo> getMovieInfosByIds(List<String> ids) {
+        //findAllById is a single $in query on _id
+        return movieInfoRepository.findAllById(ids);
     }
 
     public Mono<MovieInfo> updateMovieInfo(MovieInfo updateMovieInfo, String id) {
-        return movieInfoRepository.findById(id)
-                .flatMap(movieInfo -> {
-                    movieInfo.setCast(updateMovieInfo.getCast());
-                    movieInfo.setName(updateMovieInfo.getName());
-                    movieInfo.setYear(updateMovieInfo.getYear());
-                    movieInfo.setRelease_date(updateMovieInfo.getRelease_date());
-                    return movieInfoRepository.save(movieInfo);
-            });
+        return updateMovieInfo(updateMovieInfo, id, null);
     }
 
-    public Mono<Void> deleteMovieInfo(String id) {
-        return movieInfoRepository.deleteById(id);
+    //an expected version that isn't the stored one fails with OptimisticLockingFailureException
+    public Mono<MovieInfo> updateMovieInfo(MovieInfo updateMovieInfo, String id, Long expectedVersion) {
+        return modifyMovieInfo(updateMovieInfo, id, expectedVersion, false);
+    }
+
+    //only the fields present in patchMovieInfo are changed
+    public Mono<MovieInfo> patchMovieInfo(MovieInfo patchMovieInfo, String id, Long expectedVersion) {
+        return modifyMovieInfo(patchMovieInfo, id, expectedVersion, true);
+    }
+
+    private Mono<MovieInfo> modifyMovieInfo(MovieInfo changes, String id, Long expectedVersion, boolean partial) {
+        var fields = new LinkedHashMap<String, Object>();
+        putField(fields, "name", changes.getName(), partial);
+        putField(fields, "year", changes.getYear(), partial);
+        putField(fields, "cast", changes.getCast(), partial);
+        putField(fields, "release_date", changes.getRelease_date(), partial);
+        return movieInfoWriteRepository.findAndSet(id, expectedVersion, fields)
+                .map(previous -> {
+                    //entries keyed by the previous year and name are stale as well
+                    movieInfoCache.invalidate(previous);
+                    var previousVersion = previous.getVersion() != null ? previous.getVersion() : 0L;
+                    return new MovieInfo(previous.getMovieInfoId(),
+                            changed(previous.getName(), changes.getName(), partial),
+                            changed(previous.getYear(), changes.getYear(), partial),
+                            changed(previous.getCast(), changes.getCast(), partial),
+                            changed(previous.getRelease_date(), changes.getRelease_date(), partial),
+                            previousVersion + 1);
+                })
+                .doOnNext(movieInfoCache::invalidate)
+                .doOnNext(movieInfoNameIndex::put);
+    }
+
+    private static void putField(Map<String, Object> fields, String field, Object value, boolean partial) {
+        if (!partial || value != null) {
+            fields.put(field, value);
+        }
+    }
+
+    private static <T> T changed(T previous, T value, boolean partial) {
+        return partial && value == null ? previous : value;
+    }
+
+    //empty when there was no movieInfo with this id
+    public Mono<Long> deleteMovieInfo(String id) {
+        return movieInfoWriteRepository.deleteById(id)
+                .filter(deleted -> deleted > 0)
+                .doOnNext(deleted -> {
+                    movieInfoCache.invalidateById(id);
+                    movieInfoNameIndex.remove(id);
+                });
     }
 
     public Flux<MovieInfo> getMovieInfosByYear(Integer year) {
-        return movieInfoRepository.findByYear(year);
+        return movieInfoCache.getByYear(year, key -> movieInfoRepository.findByYear(key).collectList())
+                .flatMapIterable(Function.identity());
     }
     public Mono<MovieInfo> getMovieInfosByName(String name) {
-        return movieInfoRepository.findByName(name);
+        return movieInfoCache.getByName(name, movieInfoRepository::findByName);
+    }
+
+    public List<MovieInfoSuggestion> suggestMovieInfos(String prefix, int limit) {
+        return movieInfoNameIndex.suggest(prefix, limit);
     }
 }
@@ -0,0 +1,45 @@
+package com.reactivespring.util;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque token handed to clients to fetch the page after the last returned document.
+ */
+public final class ContinuationToken {
+
+    public static final String HEADER = "X-Continuation-Token";
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private static final String VERSION = "v1:";
+
+    private ContinuationToken() {
+    }
+
+    public static String encode(String lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((VERSION + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String decode(String token) {
+        try {
+            var decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(VERSION)) {
+                throw new IllegalArgumentException("Unknown token version");
+            }
+            return decoded.substring(VERSION.length());
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid continuation token", ex);
+        }
+    }
+
+    public static int pageSize(int limit) {
+        if (limit <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be a positive value");
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+}
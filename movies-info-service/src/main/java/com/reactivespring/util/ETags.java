@@ -0,0 +1,55 @@
+package com.reactivespring.util;
+
+import com.reactivespring.config.CodecConfig;
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+
+/**
+ * Strong entity tags built from the document id and its version, e.g. {@code "abc-3"},
+ * or {@code "abc-3-smile"} for the Smile representation.
+ */
+public final class ETags {
+
+    //the version If-Match can never be satisfied with
+    public static final long NO_MATCH = -1;
+
+    private static final String SMILE_SUFFIX = "-smile";
+
+    private ETags() {
+    }
+
+    public static String of(String id, Long version, MediaType representation) {
+        //documents written before versioning are at version 0
+        return "\"" + id + "-" + (version != null ? version : 0) + suffix(representation) + "\"";
+    }
+
+    //null when If-Match is absent or *, NO_MATCH when none of its tags belongs to the document
+    public static Long expectedVersion(String ifMatch, String id) {
+        if(!StringUtils.hasText(ifMatch) || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        var prefix = "\"" + id + "-";
+        for(var tag : ifMatch.split(",")) {
+            tag = tag.trim();
+            //If-Match uses the strong comparison, weak tags never match
+            if(tag.startsWith(prefix) && tag.endsWith("\"") && tag.length() > prefix.length() + 1) {
+                var version = tag.substring(prefix.length(), tag.length() - 1);
+                //the version is the same whichever representation the tag was served with
+                if(version.endsWith(SMILE_SUFFIX)) {
+                    version = version.substring(0, version.length() - SMILE_SUFFIX.length());
+                }
+                try {
+                    return Long.parseLong(version);
+                } catch (NumberFormatException ex) {
+                    return NO_MATCH;
+                }
+            }
+        }
+        return NO_MATCH;
+    }
+
+    //JSON and Smile bytes differ, a strong tag must tell them apart
+    private static String suffix(MediaType representation) {
+        return representation.equalsTypeAndSubtype(CodecConfig.APPLICATION_SMILE) ? SMILE_SUFFIX : "";
+    }
+}
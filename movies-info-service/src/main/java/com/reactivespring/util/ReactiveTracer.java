@@ -0,0 +1,109 @@
+package com.reactivespring.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Sampled replacement for {@code .log()}: use with {@code transformDeferred(reactiveTracer.mono("route"))}.
+ * The sampling decision is taken once per subscription, unsampled subscriptions get the source back untouched.
+ */
+@Component
+public class ReactiveTracer {
+
+    //routed to an async JSON appender by logback-spring.xml
+    private static final Logger TRACE_LOG = LoggerFactory.getLogger("reactive.trace");
+
+    private final double defaultSampleRate;
+    private final Map<String, Double> routeSampleRates;
+
+    @Autowired
+    public ReactiveTracer(Environment environment) {
+        this(environment.getProperty("tracing.sample-rate", Double.class, 0.0),
+                Binder.get(environment)
+                        .bind("tracing.routes", Bindable.mapOf(String.class, Double.class))
+                        .orElse(Map.of()));
+    }
+
+    public ReactiveTracer(double defaultSampleRate, Map<String, Double> routeSampleRates) {
+        this.defaultSampleRate = defaultSampleRate;
+        this.routeSampleRates = Map.copyOf(routeSampleRates);
+    }
+
+    public <T> Function<Mono<T>, Mono<T>> mono(String route) {
+        var sampleRate = sampleRate(route);
+        return mono -> {
+            if(!sampled(sampleRate)) {
+                return mono;
+            }
+            var trace = new Trace(route);
+            return mono
+                    .doOnSubscribe(subscription -> trace.signal("onSubscribe", null))
+                    .doOnRequest(requested -> trace.signal("request", requested))
+                    .doOnNext(value -> trace.signal("onNext", value))
+                    .doOnError(ex -> trace.signal("onError", ex))
+                    .doOnSuccess(value -> trace.signal("onComplete", null))
+                    .doOnCancel(() -> trace.signal("cancel", null));
+        };
+    }
+
+    public <T> Function<Flux<T>, Flux<T>> flux(String route) {
+        var sampleRate = sampleRate(route);
+        return flux -> {
+            if(!sampled(sampleRate)) {
+                return flux;
+            }
+            var trace = new Trace(route);
+            return flux
+                    .doOnSubscribe(subscription -> trace.signal("onSubscribe", null))
+                    .doOnRequest(requested -> trace.signal("request", requested))
+                    .doOnNext(value -> trace.signal("onNext", value))
+                    .doOnError(ex -> trace.signal("onError", ex))
+                    .doOnComplete(() -> trace.signal("onComplete", null))
+                    .doOnCancel(() -> trace.signal("cancel", null));
+        };
+    }
+
+    double sampleRate(String route) {
+        return routeSampleRates.getOrDefault(route, defaultSampleRate);
+    }
+
+    private static boolean sampled(double sampleRate) {
+        if(sampleRate <= 0 || !TRACE_LOG.isInfoEnabled()) {
+            return false;
+        }
+        return sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    private static final class Trace {
+
+        private final String route;
+        private final String traceId = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        private final long startNanos = System.nanoTime();
+
+        private Trace(String route) {
+            this.route = route;
+        }
+
+        private void signal(String signal, Object value) {
+            TRACE_LOG.info("{} {} {} {} {}",
+                    kv("route", route),
+                    kv("signal", signal),
+                    kv("traceId", traceId),
+                    kv("elapsedMicros", (System.nanoTime() - startNanos) / 1_000),
+                    kv("value", String.valueOf(value)));
+        }
+    }
+}
@@ -1,13 +1,19 @@
 package com.reactivespring.controller;
 
+import com.reactivespring.domain.BulkResult;
 import com.reactivespring.domain.MovieInfo;
 import com.reactivespring.repository.MovieInfoRepository;
+import com.reactivespring.service.MovieInfoCache;
+import com.reactivespring.util.ContinuationToken;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.util.UriBuilder;
@@ -18,6 +24,7 @@ import java.net.URI;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -32,6 +39,9 @@ class MoviesInfoControllerIntgTest {
     @Autowired
     MovieInfoRepository movieInfoRepository;
 
+    @Autowired
+    MovieInfoCache movieInfoCache;
+
     static String MOVIES_INFO_URL = "/v1/movieinfos";
 
 
@@ -48,6 +58,7 @@ class MoviesInfoControllerIntgTest {
                 .deleteAll()
                 .thenMany(movieInfoRepository.saveAll(movieinfos))
                 .blockLast();
+        movieInfoCache.invalidateAll();
     }
 
     @Test
@@ -80,6 +91,169 @@ class MoviesInfoControllerIntgTest {
                 .hasSize(1);
     }
 
+    @Test
+    void getMovieInfosByName() {
+
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "?name={name}", "The Dark Knight")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void getMovieInfosByCast() {
+        //given
+        var firstPage = webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "?cast=Christian Bale&limit=2")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(2)
+                .returnResult();
+        var next = firstPage.getResponseHeaders().getFirst(ContinuationToken.HEADER);
+        assert next != null;
+
+        //when
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "?cast=Christian Bale&limit=2&after={after}", next)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .doesNotExist(ContinuationToken.HEADER)
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+
+        //then
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "?cast=Christian Bale&cast=Tom Hardy")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "?cast=HeathLedger&cast=Tom Hardy&match=any")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(2);
+    }
+
+    @Test
+    void suggestMovieInfos_followsWrites() {
+        //given
+        var saved = webTestClient
+                .post()
+                .uri(MOVIES_INFO_URL)
+                .bodyValue(new MovieInfo(null, "Batman Returns",
+                        1992, List.of("Michael Keaton"), LocalDate.parse("1992-06-19")))
+                .exchange()
+                .expectStatus()
+                .isCreated()
+                .expectBody(MovieInfo.class)
+                .returnResult()
+                .getResponseBody();
+        assert saved != null;
+
+        //when
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "/suggest?prefix=batman r")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$[0].movieInfoId").isEqualTo(saved.getMovieInfoId())
+                .jsonPath("$[0].year").isEqualTo(1992);
+
+        webTestClient
+                .delete()
+                .uri(MOVIES_INFO_URL + "/{id}", saved.getMovieInfoId())
+                .exchange()
+                .expectStatus()
+                .isNoContent();
+
+        //then
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "/suggest?prefix=batman r")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(0);
+    }
+
+    @Test
+    void getMovieInfosPages() {
+
+        var firstPage = webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "?limit=2")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(2)
+                .returnResult();
+        var continuationToken = firstPage.getResponseHeaders().getFirst(ContinuationToken.HEADER);
+        assertNotNull(continuationToken);
+
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "?limit=2&after={after}", continuationToken)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .doesNotExist(ContinuationToken.HEADER)
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void streamAllMovieInfos() {
+
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(MovieInfo.class)
+                .hasSize(3);
+    }
+
+    @Test
+    void batchGetMovieInfos() {
+
+        var ids = List.of("abc", "def");
+
+        webTestClient
+                .post()
+                .uri(MOVIES_INFO_URL + ":batchGet")
+                .bodyValue(ids)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+    }
+
     @Test
     void getAllMovieInfosByName() {
 
@@ -99,8 +273,8 @@ class MoviesInfoControllerIntgTest {
     @Test
     void addMovieInfo() {
         //given
-        var movieInfo = new MovieInfo(null, "Batman Begins",
-                2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+        var movieInfo = new MovieInfo(null, "Batman Returns",
+                1992, List.of("Michael Keaton", "Danny DeVito"), LocalDate.parse("1992-06-19"));
         //when
         webTestClient
                 .post()
@@ -117,6 +291,21 @@ class MoviesInfoControllerIntgTest {
                 });
     }
 
+    @Test
+    void addMovieInfo_duplicateName() {
+        //given
+        var movieInfo = new MovieInfo(null, "Batman Begins",
+                2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+        //when
+        webTestClient
+                .post()
+                .uri(MOVIES_INFO_URL)
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.CONFLICT);
+    }
+
     @Test
     void getAllMovieInfosById() {
 
@@ -176,6 +365,85 @@ class MoviesInfoControllerIntgTest {
             });
     }
 
+    @Test
+    void updateMovieInfo_ifMatch() {
+        //given
+        var movieInfoId = "abc";
+        var etag = webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "/{id}", movieInfoId)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(MovieInfo.class)
+                .getResponseHeaders()
+                .getETag();
+        assertEquals("\"abc-0\"", etag);
+        var movieInfo = new MovieInfo(null, "Dark Knight Rises Again",
+                2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+
+        //when
+        webTestClient
+                .put()
+                .uri(MOVIES_INFO_URL + "/{id}", movieInfoId)
+                .header(HttpHeaders.IF_MATCH, etag)
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"abc-1\"");
+
+        //then the first ETag is stale
+        webTestClient
+                .put()
+                .uri(MOVIES_INFO_URL + "/{id}", movieInfoId)
+                .header(HttpHeaders.IF_MATCH, etag)
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "/{id}", movieInfoId)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"abc-1\"")
+                .exchange()
+                .expectStatus()
+                .isNotModified();
+    }
+
+    @Test
+    void patchMovieInfo() {
+        //given
+        var movieInfoId = "abc";
+        var patch = new MovieInfo(null, null, 2013, null, null);
+
+        //when
+        webTestClient
+                .patch()
+                .uri(MOVIES_INFO_URL + "/{id}", movieInfoId)
+                .bodyValue(patch)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"abc-1\"");
+
+        //then only the year changed
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "/{id}", movieInfoId)
+                .exchange()
+                .expectBody(MovieInfo.class)
+                .consumeWith(movieInfoEntityExchangeResult -> {
+                    var movieInfo = movieInfoEntityExchangeResult.getResponseBody();
+                    assert movieInfo != null;
+                    assertEquals("Dark Knight Rises", movieInfo.getName());
+                    assertEquals(2013, movieInfo.getYear());
+                    assertEquals(List.of("Christian Bale", "Tom Hardy"), movieInfo.getCast());
+                });
+    }
+
     @Test
     void updateMovieInfo_validated() {
 
@@ -207,5 +475,44 @@ class MoviesInfoControllerIntgTest {
                 .isNoContent()
         ;
 
+        //then
+        webTestClient
+                .delete()
+                .uri(MOVIES_INFO_URL+"/{id}", movieInfoId)
+                .exchange()
+                .expectStatus()
+                .isNotFound();
+    }
+
+    @Test
+    void bulkUpsertMovieInfos() {
+        //given
+        var body = String.join("\n",
+                "{\"movieInfoId\":\"abc\",\"name\":\"Dark Knight Rises\",\"year\":2013,\"cast\":[\"Christian Bale\"],\"release_date\":\"2012-07-20\"}",
+                "{\"name\":\"Inception\",\"year\":2010,\"cast\":[\"Leonardo DiCaprio\"],\"release_date\":\"2010-07-16\"}",
+                "{\"name\":\"Batman Begins\",\"year\":2005,\"cast\":[\"Christian Bale\"],\"release_date\":\"2005-06-15\"}",
+                "{\"name\":\"\",\"year\":2010,\"cast\":[\"Leonardo DiCaprio\"],\"release_date\":\"2010-07-16\"}");
+
+        //when
+        var results = webTestClient
+                .post()
+                .uri(MOVIES_INFO_URL + ":bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(BulkResult.class)
+                .returnResult()
+                .getResponseBody();
+
+        //then
+        assertNotNull(results);
+        assertEquals(List.of(200, 201, 409, 400), results.stream().map(BulkResult::getStatus).collect(Collectors.toList()));
+        assertNotNull(results.get(1).getId());
+        assertEquals("movieInfo.name must be present", results.get(3).getMessage());
+        assertEquals(2013, movieInfoRepository.findById("abc").block().getYear());
+        assertEquals(4, movieInfoRepository.count().block());
     }
-}
\ No newline at end of file
+}
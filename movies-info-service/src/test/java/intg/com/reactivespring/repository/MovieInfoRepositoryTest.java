@@ -1,12 +1,18 @@
 package com.reactivespring.repository;
 
+import com.reactivespring.config.MongoDocumentsConfig;
 import com.reactivespring.domain.MovieInfo;
+import org.bson.Document;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.test.context.ActiveProfiles;
+import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.time.LocalDate;
@@ -14,14 +20,19 @@ import java.util.List;
 
 import static com.mongodb.assertions.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @DataMongoTest
 @ActiveProfiles("test")
+@Import(MongoDocumentsConfig.class)
 class MovieInfoRepositoryTest {
 
     @Autowired
     MovieInfoRepository movieInfoRepository;
 
+    @Autowired
+    ReactiveMongoTemplate reactiveMongoTemplate;
+
     @BeforeEach
     void setup() {
         var movieInfos = List.of(new MovieInfo(null, "Batman Begins",
@@ -38,7 +49,7 @@ class MovieInfoRepositoryTest {
 
     @AfterEach
     void tearDown(){
-        movieInfoRepository.deleteAll();
+        movieInfoRepository.deleteAll().block();
     }
 
     @Test
@@ -121,4 +132,37 @@ class MovieInfoRepositoryTest {
                 })
                 .verifyComplete();
     }
-}
\ No newline at end of file
+
+    @Test
+    void saveMovieInfo_duplicateName() {
+
+        var movieInfo = new MovieInfo(null, "Batman Begins",2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+        var moviesInfoMono = movieInfoRepository.save(movieInfo);
+
+        StepVerifier.create(moviesInfoMono)
+                .expectError(DuplicateKeyException.class)
+                .verify();
+    }
+
+    @Test
+    void findByYear_usesIndex() {
+        assertIndexScan(new Document("year", 2005));
+    }
+
+    @Test
+    void findByName_usesIndex() {
+        assertIndexScan(new Document("name", "Batman Begins"));
+    }
+
+    private void assertIndexScan(Document filter) {
+        var explainMono = reactiveMongoTemplate.getCollection("movieInfo")
+                .flatMap(collection -> Mono.from(collection.find(filter).explain()));
+
+        StepVerifier.create(explainMono)
+                .assertNext(explain -> {
+                    var winningPlan = explain.get("queryPlanner", Document.class).get("winningPlan", Document.class);
+                    assertTrue(winningPlan.toJson().contains("IXSCAN"), winningPlan.toJson());
+                })
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,74 @@
+package com.reactivespring.service;
+
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.repository.MovieInfoRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+@SpringBootTest(properties = {
+        "spring.mongodb.embedded.version=4.0.2",
+        "spring.mongodb.embedded.storage.repl-set-name=rs0",
+        "movieinfo.cache.change-stream.enabled=true"
+})
+@ActiveProfiles("test")
+class MovieInfoChangeStreamIntgTest {
+
+    @Autowired
+    MongoClient mongoClient;
+
+    @Autowired
+    MovieInfoRepository movieInfoRepository;
+
+    @Autowired
+    MovieInfoService movieInfoService;
+
+    @BeforeEach
+    void setUp() {
+        //the embedded mongod is started with --replSet, but the single node replica set still has to be initiated
+        Mono.from(mongoClient.getDatabase("admin").runCommand(new Document("replSetInitiate", new Document())))
+                .onErrorResume(ex -> Mono.empty())
+                .block();
+        Mono.from(mongoClient.getDatabase("admin").runCommand(new Document("isMaster", 1)))
+                .filter(isMaster -> isMaster.getBoolean("ismaster", false))
+                .repeatWhenEmpty(repeat -> repeat.delayElements(Duration.ofMillis(200)))
+                .block(Duration.ofSeconds(30));
+
+        var movieInfo = new MovieInfo("abc", "Dark Knight Rises",
+                2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+        movieInfoRepository.deleteAll()
+                .then(movieInfoRepository.save(movieInfo))
+                .block();
+    }
+
+    @Test
+    void writeFromAnotherInstanceEvictsCachedEntry() {
+        //given
+        movieInfoService.getMovieInfosById("abc").block();
+
+        //when - the repository is used directly, like another instance writing to the same collection
+        var movieInfo = new MovieInfo("abc", "Dark Knight Rises Again",
+                2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+        movieInfoRepository.save(movieInfo).block();
+
+        //then
+        var eventuallyUpdated = movieInfoService.getMovieInfosById("abc")
+                .filter(found -> found.getName().equals("Dark Knight Rises Again"))
+                .repeatWhenEmpty(repeat -> repeat.delayElements(Duration.ofMillis(100)));
+
+        StepVerifier.create(eventuallyUpdated)
+                .expectNextCount(1)
+                .expectComplete()
+                .verify(Duration.ofSeconds(30));
+    }
+}
@@ -0,0 +1,64 @@
+package com.reactivespring.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RepositoryMetricsInterceptorTest {
+
+    interface SampleRepository {
+        Mono<String> findById(String id);
+
+        Flux<String> findAll();
+    }
+
+    MeterRegistry meterRegistry;
+    SampleRepository sampleRepository;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        var beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", meterRegistry);
+
+        var proxyFactory = new ProxyFactory(new SampleRepository() {
+            @Override
+            public Mono<String> findById(String id) {
+                return id.equals("boom") ? Mono.error(new IllegalStateException()) : Mono.just(id);
+            }
+
+            @Override
+            public Flux<String> findAll() {
+                return Flux.just("a", "b");
+            }
+        });
+        proxyFactory.addAdvice(new RepositoryMetricsInterceptor(beanFactory.getBeanProvider(MeterRegistry.class), "SampleRepository"));
+        sampleRepository = (SampleRepository) proxyFactory.getProxy();
+    }
+
+    @Test
+    void timesFromSubscriptionToTermination() {
+        var findAll = sampleRepository.findAll();
+        //nothing is recorded until the flux is subscribed
+        assertNull(meterRegistry.find(RepositoryMetricsInterceptor.METRIC_NAME).timer());
+
+        StepVerifier.create(findAll).expectNext("a", "b").verifyComplete();
+        StepVerifier.create(sampleRepository.findById("boom")).verifyError(IllegalStateException.class);
+
+        assertEquals(1, meterRegistry.get(RepositoryMetricsInterceptor.METRIC_NAME)
+                .tags("repository", "SampleRepository", "method", "findAll", "outcome", "success")
+                .timer().count());
+        assertEquals(1, meterRegistry.get(RepositoryMetricsInterceptor.METRIC_NAME)
+                .tags("method", "findById", "outcome", "error")
+                .timer().count());
+    }
+}
@@ -1,13 +1,20 @@
 package com.reactivespring.controller;
 
+import com.reactivespring.config.CodecConfig;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoSuggestion;
+import com.reactivespring.service.MovieInfoBulkService;
 import com.reactivespring.service.MovieInfoService;
+import com.reactivespring.util.ContinuationToken;
+import com.reactivespring.util.ReactiveTracer;
 import org.junit.jupiter.api.Test;
-import org.mockito.stubbing.OngoingStubbing;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
@@ -17,10 +24,13 @@ import java.time.LocalDate;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest(controllers = MoviesInfoController.class)
+@Import({ReactiveTracer.class, CodecConfig.class})
 @AutoConfigureWebTestClient
 public class MoviesInfoControllerUnitTest {
 
@@ -32,6 +42,9 @@ public class MoviesInfoControllerUnitTest {
     @MockBean
     private MovieInfoService movieInfoServiceMock;
 
+    @MockBean
+    private MovieInfoBulkService movieInfoBulkServiceMock;
+
     @Test
     void getAllMoviesTest(){
 
@@ -54,6 +67,134 @@ public class MoviesInfoControllerUnitTest {
                 .hasSize(3);
     }
 
+    @Test
+    void getMovieInfosByNameTest() {
+        //given
+        when(movieInfoServiceMock.getMovieInfosByName("Dark Knight Rises"))
+                .thenReturn(Mono.just(new MovieInfo("abc", "Dark Knight Rises",
+                        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"))));
+
+        //then
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "?name={name}", "Dark Knight Rises")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void getMovieInfosByCastTest() {
+        //given
+        var movieinfos = List.of(new MovieInfo("abc", "Dark Knight Rises",
+                        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")),
+                new MovieInfo("def", "Inception",
+                        2010, List.of("Leonardo DiCaprio", "Tom Hardy"), LocalDate.parse("2010-07-16")));
+        when(movieInfoServiceMock.getMovieInfosByCast(List.of("Tom Hardy"), true, null, 2))
+                .thenReturn(Flux.fromIterable(movieinfos));
+        when(movieInfoServiceMock.getMovieInfosByCast(List.of("Christian Bale", "Leonardo DiCaprio"), false, null, 100))
+                .thenReturn(Flux.fromIterable(movieinfos));
+
+        //then - a full page carries the token of the next one
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "?cast=Tom Hardy&limit=2")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(ContinuationToken.HEADER, ContinuationToken.encode("def"))
+                .expectBodyList(MovieInfo.class)
+                .hasSize(2);
+
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "?cast=Christian Bale&cast=Leonardo DiCaprio&match=any")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .doesNotExist(ContinuationToken.HEADER)
+                .expectBodyList(MovieInfo.class)
+                .hasSize(2);
+
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "?cast=Tom Hardy&match=some")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void suggestMovieInfosTest() {
+        //given
+        when(movieInfoServiceMock.suggestMovieInfos("dark", 5))
+                .thenReturn(List.of(new MovieInfoSuggestion("abc", "Dark Knight Rises", 2012)));
+
+        //then
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "/suggest?prefix=dark&limit=5")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$[0].movieInfoId").isEqualTo("abc")
+                .jsonPath("$[0].name").isEqualTo("Dark Knight Rises");
+
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "/suggest?prefix=dark&limit=0")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void getMovieInfosPageTest() {
+
+        var movieinfos = List.of(new MovieInfo("abc", "Dark Knight Rises",
+                        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")),
+                new MovieInfo("def", "The Dark Knight",
+                        2008, List.of("Christian Bale", "HeathLedger"), LocalDate.parse("2008-07-18")));
+
+        when(movieInfoServiceMock.getMovieInfosPage(null, 2)).thenReturn(Flux.fromIterable(movieinfos));
+
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "?limit=2")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .valueEquals(ContinuationToken.HEADER, ContinuationToken.encode("def"))
+                .expectBodyList(MovieInfo.class)
+                .hasSize(2);
+    }
+
+    @Test
+    void getMovieInfosPage_lastPageTest() {
+
+        var movieinfos = List.of(new MovieInfo("ghi", "Batman Begins",
+                2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15")));
+
+        when(movieInfoServiceMock.getMovieInfosPage("def", 2)).thenReturn(Flux.fromIterable(movieinfos));
+
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "?limit=2&after={after}", ContinuationToken.encode("def"))
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .doesNotExist(ContinuationToken.HEADER)
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+    }
+
     @Test
     void getAllMovieInfosByIdTest() {
 
@@ -82,6 +223,116 @@ public class MoviesInfoControllerUnitTest {
 
     }
 
+    @Test
+    void getAllMovieInfosById_notModified() {
+        //given
+        var id = "abc";
+        var movieinfo = new MovieInfo("abc", "Dark Knight Rises",
+                2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"), 3L);
+        when(movieInfoServiceMock.getMovieInfosById(id)).thenReturn(Mono.just(movieinfo));
+
+        //when
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "/{id}", id)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"abc-3\"");
+
+        //then
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "/{id}", id)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"abc-3\"")
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectBody()
+                .isEmpty();
+    }
+
+    @Test
+    void getAllMovieInfosById_smile() {
+        //given
+        var id = "abc";
+        var movieinfo = new MovieInfo("abc", "Dark Knight Rises",
+                2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"), 3L);
+        when(movieInfoServiceMock.getMovieInfosById(id)).thenReturn(Mono.just(movieinfo));
+
+        //when
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "/{id}", id)
+                .accept(CodecConfig.APPLICATION_SMILE)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentType(CodecConfig.APPLICATION_SMILE)
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"abc-3-smile\"")
+                .expectHeader()
+                .valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .expectBody(MovieInfo.class)
+                .isEqualTo(movieinfo);
+
+        //then - the tag of the JSON bytes doesn't validate the Smile ones
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "/{id}", id)
+                .accept(CodecConfig.APPLICATION_SMILE)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"abc-3\"")
+                .exchange()
+                .expectStatus()
+                .isOk();
+    }
+
+    @Test
+    void updateMovieInfo_ifMatch() {
+        //given
+        var id = "abc";
+        var movieInfo = new MovieInfo(null, "Dark Knight Rises Again",
+                2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+        when(movieInfoServiceMock.updateMovieInfo(isA(MovieInfo.class), eq(id), eq(3L)))
+                .thenReturn(Mono.just(new MovieInfo(id, "Dark Knight Rises Again",
+                        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"), 4L)));
+        when(movieInfoServiceMock.updateMovieInfo(isA(MovieInfo.class), eq(id), eq(2L)))
+                .thenReturn(Mono.error(new OptimisticLockingFailureException("movieInfo abc is at version 3, not 2")));
+
+        //then
+        webTestClient
+                .put()
+                .uri(MOVIES_INFO_URL + "/{id}", id)
+                .header(HttpHeaders.IF_MATCH, "\"abc-3\"")
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"abc-4\"");
+
+        //a tag served with the Smile representation names the same version
+        webTestClient
+                .put()
+                .uri(MOVIES_INFO_URL + "/{id}", id)
+                .header(HttpHeaders.IF_MATCH, "\"abc-3-smile\"")
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        webTestClient
+                .put()
+                .uri(MOVIES_INFO_URL + "/{id}", id)
+                .header(HttpHeaders.IF_MATCH, "\"abc-2\"")
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+
     @Test
     void addMovieInfo() {
         //given
@@ -133,14 +384,37 @@ public class MoviesInfoControllerUnitTest {
                         });
     }
 
+    @Test
+    void patchMovieInfo() {
+        //given
+        var id = "abc";
+        var patch = new MovieInfo(null, null, 2013, null, null);
+        when(movieInfoServiceMock.patchMovieInfo(isA(MovieInfo.class), eq(id), isNull()))
+                .thenReturn(Mono.just(new MovieInfo(id, "Dark Knight Rises",
+                        2013, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"), 1L)));
+
+        //then
+        webTestClient
+                .patch()
+                .uri(MOVIES_INFO_URL + "/{id}", id)
+                .bodyValue(patch)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"abc-1\"")
+                .expectBody(MovieInfo.class)
+                .consumeWith(movieInfoEntityExchangeResult ->
+                        assertEquals(2013, movieInfoEntityExchangeResult.getResponseBody().getYear()));
+    }
+
     @Test
     void deleteMovieInfo() {
 
         var id = "abc";
 
         //when
-        OngoingStubbing<Mono<Mono<Object>>> when = when(movieInfoServiceMock.deleteMovieInfo(isA(String.class))
-                .thenReturn(Mono.empty()));
+        when(movieInfoServiceMock.deleteMovieInfo(id)).thenReturn(Mono.just(1L));
         webTestClient
                 .delete()
                 .uri(MOVIES_INFO_URL + "/{id}", id)
@@ -149,4 +423,17 @@ public class MoviesInfoControllerUnitTest {
                 .isNoContent()
         ;
     }
+
+    @Test
+    void deleteMovieInfo_notFound() {
+
+        //when
+        when(movieInfoServiceMock.deleteMovieInfo("def")).thenReturn(Mono.empty());
+        webTestClient
+                .delete()
+                .uri(MOVIES_INFO_URL + "/{id}", "def")
+                .exchange()
+                .expectStatus()
+                .isNotFound();
+    }
 }
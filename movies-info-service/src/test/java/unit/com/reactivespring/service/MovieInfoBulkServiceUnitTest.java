@@ -0,0 +1,84 @@
+package com.reactivespring.service;
+
+import com.reactivespring.domain.BulkResult;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.repository.MovieInfoBulkRepository;
+import com.reactivespring.repository.MovieInfoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import reactor.util.function.Tuple2;
+
+import javax.validation.Validation;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MovieInfoBulkServiceUnitTest {
+
+    @Mock
+    MovieInfoBulkRepository movieInfoBulkRepositoryMock;
+
+    @Mock
+    MovieInfoRepository movieInfoRepositoryMock;
+
+    MovieInfoBulkService movieInfoBulkService;
+
+    @BeforeEach
+    void setUp() {
+        movieInfoBulkService = new MovieInfoBulkService(movieInfoBulkRepositoryMock,
+                new MovieInfoCache(100, Duration.ofMinutes(10)), new MovieInfoNameIndex(movieInfoRepositoryMock),
+                Validation.buildDefaultValidatorFactory().getValidator(), 2);
+    }
+
+    @Test
+    void upsertMovieInfos_writesInBatches() {
+        //given
+        when(movieInfoBulkRepositoryMock.upsertAll(anyList()))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<Tuple2<Long, MovieInfo>>>getArgument(0))
+                        .map(record -> BulkResult.of(record.getT1(), "id-" + record.getT1(), HttpStatus.CREATED)));
+        var movieInfos = Flux.range(0, 5)
+                .map(i -> new MovieInfo(null, "Movie " + i, 2000 + i, List.of("Actor"), LocalDate.parse("2000-01-01")));
+
+        //when
+        var results = movieInfoBulkService.upsertMovieInfos(movieInfos);
+
+        //then
+        StepVerifier.create(results.map(BulkResult::getIndex).collect(Collectors.toList()))
+                .expectNext(List.of(0L, 1L, 2L, 3L, 4L))
+                .verifyComplete();
+        verify(movieInfoBulkRepositoryMock, times(3)).upsertAll(anyList());
+    }
+
+    @Test
+    void upsertMovieInfos_invalidRecordsAreNotWritten() {
+        //given
+        var movieInfos = Flux.just(
+                new MovieInfo(null, "", -2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15")),
+                new MovieInfo("abc", "", 2005, List.of(""), LocalDate.parse("2005-06-15")));
+
+        //when
+        var results = movieInfoBulkService.upsertMovieInfos(movieInfos);
+
+        //then
+        StepVerifier.create(results)
+                .expectNext(BulkResult.failed(0, null, HttpStatus.BAD_REQUEST,
+                        "movieInfo.name must be present,movieInfo.year must be a Positive Value"))
+                .expectNext(BulkResult.failed(1, "abc", HttpStatus.BAD_REQUEST,
+                        "movieInfo.cast must be present,movieInfo.name must be present"))
+                .verifyComplete();
+        verify(movieInfoBulkRepositoryMock, times(0)).upsertAll(anyList());
+    }
+}
@@ -0,0 +1,89 @@
+package com.reactivespring.service;
+
+import com.reactivespring.domain.MovieInfo;
+import org.bson.BsonTimestamp;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MovieInfoChangeStreamListenerTest {
+
+    static final BsonTimestamp OPERATION_TIME = new BsonTimestamp(1_700_000_000, 3);
+
+    @Mock
+    ReactiveMongoTemplate reactiveMongoTemplateMock;
+
+    @Mock
+    MovieInfoCache movieInfoCacheMock;
+
+    @Mock
+    MovieInfoNameIndex movieInfoNameIndexMock;
+
+    MovieInfoChangeStreamListener listener;
+
+    @BeforeEach
+    void setUp() {
+        when(reactiveMongoTemplateMock.getCollectionName(MovieInfo.class)).thenReturn("movieInfo");
+        when(reactiveMongoTemplateMock.executeCommand(any(Document.class)))
+                .thenReturn(Mono.just(new Document("ok", 1.0).append("operationTime", OPERATION_TIME)));
+        listener = new MovieInfoChangeStreamListener(reactiveMongoTemplateMock, movieInfoCacheMock, movieInfoNameIndexMock);
+    }
+
+    @AfterEach
+    void tearDown() {
+        listener.stop();
+    }
+
+    @Test
+    void invalidatedStreamIsReopened() {
+        //given - the stream completes, like it does after an invalidate event
+        when(reactiveMongoTemplateMock.changeStream(eq("movieInfo"), any(ChangeStreamOptions.class), eq(MovieInfo.class)))
+                .thenReturn(Flux.empty());
+
+        //when
+        listener.start();
+
+        //then
+        verify(reactiveMongoTemplateMock, timeout(5_000).times(2))
+                .changeStream(eq("movieInfo"), any(ChangeStreamOptions.class), eq(MovieInfo.class));
+    }
+
+    @Test
+    void streamStartsAtTheClusterTimeTakenBeforeTheRebuild() {
+        //given
+        when(reactiveMongoTemplateMock.changeStream(eq("movieInfo"), any(ChangeStreamOptions.class), eq(MovieInfo.class)))
+                .thenReturn(Flux.never());
+
+        //when
+        listener.start();
+
+        //then
+        var options = ArgumentCaptor.forClass(ChangeStreamOptions.class);
+        var inOrder = inOrder(reactiveMongoTemplateMock, movieInfoCacheMock, movieInfoNameIndexMock);
+        inOrder.verify(reactiveMongoTemplateMock).executeCommand(any(Document.class));
+        inOrder.verify(movieInfoCacheMock).invalidateAll();
+        inOrder.verify(movieInfoNameIndexMock).rebuild();
+        inOrder.verify(reactiveMongoTemplateMock).changeStream(eq("movieInfo"), options.capture(), eq(MovieInfo.class));
+        assertEquals(Optional.of(OPERATION_TIME), options.getValue().getResumeBsonTimestamp());
+    }
+}
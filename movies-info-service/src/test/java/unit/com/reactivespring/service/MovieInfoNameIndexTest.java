@@ -0,0 +1,103 @@
+package com.reactivespring.service;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoSuggestion;
+import com.reactivespring.repository.MovieInfoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MovieInfoNameIndexTest {
+
+    @Mock
+    MovieInfoRepository movieInfoRepositoryMock;
+
+    MovieInfoNameIndex movieInfoNameIndex;
+
+    @BeforeEach
+    void setUp() {
+        movieInfoNameIndex = new MovieInfoNameIndex(movieInfoRepositoryMock);
+        movieInfoNameIndex.put(movieInfo("1", "Batman Begins"));
+        movieInfoNameIndex.put(movieInfo("2", "Batman"));
+        movieInfoNameIndex.put(movieInfo("3", "The Dark Knight"));
+        movieInfoNameIndex.put(movieInfo("4", "Amélie"));
+        movieInfoNameIndex.put(movieInfo("5", "Batman   Returns"));
+    }
+
+    @Test
+    void suggest_matchesNormalizedPrefixesInOrder() {
+        assertEquals(List.of("Batman", "Batman Begins", "Batman   Returns"), names(movieInfoNameIndex.suggest("BAT", 10)));
+        assertEquals(List.of("Batman   Returns"), names(movieInfoNameIndex.suggest("batman r", 10)));
+        assertEquals(List.of("Amélie"), names(movieInfoNameIndex.suggest("ame", 10)));
+        assertEquals(List.of(), names(movieInfoNameIndex.suggest("dark", 10)));
+        assertEquals(List.of(), names(movieInfoNameIndex.suggest("  ", 10)));
+    }
+
+    @Test
+    void suggest_isLimited() {
+        assertEquals(List.of("Batman", "Batman Begins"), names(movieInfoNameIndex.suggest("bat", 2)));
+    }
+
+    @Test
+    void put_replacesTheEntryOfARenamedMovie() {
+        movieInfoNameIndex.put(movieInfo("2", "Batman Forever"));
+        movieInfoNameIndex.remove("1");
+
+        assertEquals(List.of("Batman Forever", "Batman   Returns"), names(movieInfoNameIndex.suggest("bat", 10)));
+        assertEquals(4, movieInfoNameIndex.size());
+    }
+
+    @Test
+    void rebuild_replacesTheIndex() {
+        when(movieInfoRepositoryMock.findAllNames())
+                .thenReturn(Flux.just(movieInfo("6", "Inception"), movieInfo("3", "The Dark Knight")));
+
+        //the scan completes synchronously here
+        movieInfoNameIndex.rebuild();
+
+        assertEquals(2, movieInfoNameIndex.size());
+        assertEquals(List.of(), movieInfoNameIndex.suggest("bat", 10));
+        assertEquals(List.of("Inception"), names(movieInfoNameIndex.suggest("in", 10)));
+    }
+
+    @Test
+    void rebuild_keepsTheWritesMadeDuringTheScan() {
+        var scan = Sinks.many().unicast().<MovieInfo>onBackpressureBuffer();
+        when(movieInfoRepositoryMock.findAllNames()).thenReturn(scan.asFlux());
+
+        movieInfoNameIndex.rebuild();
+        scan.tryEmitNext(movieInfo("1", "Batman Begins"));
+        movieInfoNameIndex.put(movieInfo("1", "Batman Forever"));
+        movieInfoNameIndex.put(movieInfo("7", "Batman Returns"));
+        movieInfoNameIndex.remove("2");
+        //read before the writes above
+        scan.tryEmitNext(movieInfo("2", "Batman"));
+        scan.tryEmitNext(movieInfo("7", "Batman Returns"));
+        var duringScan = names(movieInfoNameIndex.suggest("bat", 10));
+        scan.tryEmitComplete();
+
+        assertEquals(List.of("Batman Forever", "Batman   Returns", "Batman Returns"), duringScan);
+        assertEquals(List.of("Batman Forever", "Batman Returns"), names(movieInfoNameIndex.suggest("bat", 10)));
+        assertEquals(2, movieInfoNameIndex.size());
+    }
+
+    private static MovieInfo movieInfo(String id, String name) {
+        return new MovieInfo(id, name, 2000, List.of("Actor"), LocalDate.parse("2000-01-01"));
+    }
+
+    private static List<String> names(List<MovieInfoSuggestion> suggestions) {
+        return suggestions.stream().map(MovieInfoSuggestion::getName).collect(Collectors.toList());
+    }
+}
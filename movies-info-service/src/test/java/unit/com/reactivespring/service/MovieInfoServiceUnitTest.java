@@ -1,10 +1,258 @@
 package com.reactivespring.service;
 
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoSuggestion;
+import com.reactivespring.repository.MovieInfoCastRepository;
+import com.reactivespring.repository.MovieInfoRepository;
+import com.reactivespring.repository.MovieInfoWriteRepository;
+import com.reactivespring.util.ReactiveTracer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+@ExtendWith(MockitoExtension.class)
 class MovieInfoServiceUnitTest {
 
+    @Mock
+    MovieInfoRepository movieInfoRepositoryMock;
+
+    @Mock
+    MovieInfoWriteRepository movieInfoWriteRepositoryMock;
+
+    @Mock
+    MovieInfoCastRepository movieInfoCastRepositoryMock;
+
+    MovieInfoCache movieInfoCache;
+
+    MovieInfoNameIndex movieInfoNameIndex;
+
+    MovieInfoService movieInfoService;
+
+    @BeforeEach
+    void setUp() {
+        movieInfoCache = new MovieInfoCache(100, Duration.ofMinutes(10));
+        movieInfoNameIndex = new MovieInfoNameIndex(movieInfoRepositoryMock);
+        movieInfoService = new MovieInfoService(movieInfoRepositoryMock, movieInfoWriteRepositoryMock, movieInfoCastRepositoryMock,
+                movieInfoCache, movieInfoNameIndex, new ReactiveTracer(0.0, Map.of()));
+    }
+
+    @Test
+    void getMovieInfosById_coalescesConcurrentLookups() {
+        //given
+        var movieInfo = new MovieInfo("abc", "Dark Knight Rises",
+                2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+        when(movieInfoRepositoryMock.findById("abc"))
+                .thenReturn(Mono.just(movieInfo).delayElement(Duration.ofMillis(200)));
+        var meterRegistry = new SimpleMeterRegistry();
+        movieInfoCache.bindTo(meterRegistry);
+
+        //when
+        var lookups = Flux.range(0, 10)
+                .flatMap(i -> movieInfoService.getMovieInfosById("abc"));
+
+        //then
+        StepVerifier.create(lookups)
+                .expectNextCount(10)
+                .verifyComplete();
+        verify(movieInfoRepositoryMock, times(1)).findById("abc");
+        assertEquals(9.0, meterRegistry.get("movieinfo.lookups.coalesced").tag("cache", "movieinfo.byId").functionCounter().count());
+    }
+
+    @Test
+    void getMovieInfosById_servedFromCache() {
+        //given
+        var movieInfo = new MovieInfo("abc", "Dark Knight Rises",
+                2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+        when(movieInfoRepositoryMock.findById("abc")).thenReturn(Mono.just(movieInfo));
+
+        //when
+        movieInfoService.getMovieInfosById("abc").block();
+        var movieInfoMono = movieInfoService.getMovieInfosById("abc");
+
+        //then
+        StepVerifier.create(movieInfoMono)
+                .assertNext(found -> assertEquals("Dark Knight Rises", found.getName()))
+                .verifyComplete();
+        verify(movieInfoRepositoryMock, times(1)).findById("abc");
+    }
+
+    @Test
+    void getMovieInfosById_notFoundIsNotCached() {
+        //given
+        when(movieInfoRepositoryMock.findById("def")).thenReturn(Mono.empty());
+
+        //when
+        movieInfoService.getMovieInfosById("def").block();
+        var movieInfoMono = movieInfoService.getMovieInfosById("def");
+
+        //then
+        StepVerifier.create(movieInfoMono)
+                .verifyComplete();
+        verify(movieInfoRepositoryMock, times(2)).findById("def");
+    }
+
+    @Test
+    void deleteMovieInfo_invalidatesCache() {
+        //given
+        var movieInfo = new MovieInfo("abc", "Dark Knight Rises",
+                2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+        when(movieInfoRepositoryMock.findById("abc")).thenReturn(Mono.just(movieInfo));
+        when(movieInfoWriteRepositoryMock.deleteById("abc")).thenReturn(Mono.just(1L));
+
+        //when
+        movieInfoService.getMovieInfosById("abc").block();
+        movieInfoService.deleteMovieInfo("abc").block();
+        movieInfoService.getMovieInfosById("abc").block();
+
+        //then
+        verify(movieInfoRepositoryMock, times(2)).findById("abc");
+    }
+
+    @Test
+    void deleteMovieInfo_notFound() {
+        //given
+        when(movieInfoWriteRepositoryMock.deleteById("def")).thenReturn(Mono.just(0L));
+
+        //then
+        StepVerifier.create(movieInfoService.deleteMovieInfo("def"))
+                .verifyComplete();
+    }
+
+    @Test
+    void updateMovieInfo_singleFindAndModify() {
+        //given
+        when(movieInfoWriteRepositoryMock.findAndSet(eq("abc"), isNull(), any()))
+                .thenReturn(Mono.just(new MovieInfo("abc", "Dark Knight Rises",
+                        2012, List.of("Christian Bale"), LocalDate.parse("2012-07-20"), 3L)));
+        var update = new MovieInfo(null, "Dark Knight Rises Again",
+                2012, null, LocalDate.parse("2012-07-20"));
+
+        //when
+        var updated = movieInfoService.updateMovieInfo(update, "abc");
+
+        //then - a full update sets the missing cast as well
+        StepVerifier.create(updated)
+                .assertNext(movieInfo -> {
+                    assertEquals("Dark Knight Rises Again", movieInfo.getName());
+                    assertNull(movieInfo.getCast());
+                    assertEquals(4L, movieInfo.getVersion());
+                })
+                .verifyComplete();
+        verify(movieInfoWriteRepositoryMock).findAndSet(eq("abc"), isNull(), argThat(fields ->
+                fields.size() == 4 && fields.containsKey("cast") && fields.get("cast") == null));
+        verify(movieInfoRepositoryMock, never()).findById(any(String.class));
+        verify(movieInfoRepositoryMock, never()).save(any(MovieInfo.class));
+    }
+
+    @Test
+    void writesKeepTheNameIndexInSync() {
+        //given
+        var movieInfo = new MovieInfo("abc", "Dark Knight Rises",
+                2012, List.of("Christian Bale"), LocalDate.parse("2012-07-20"), 0L);
+        when(movieInfoRepositoryMock.save(movieInfo)).thenReturn(Mono.just(movieInfo));
+        when(movieInfoWriteRepositoryMock.findAndSet(eq("abc"), isNull(), any())).thenReturn(Mono.just(movieInfo));
+        when(movieInfoWriteRepositoryMock.deleteById("abc")).thenReturn(Mono.just(1L));
+
+        //when
+        movieInfoService.addMovieInfo(movieInfo).block();
+        var added = movieInfoService.suggestMovieInfos("dark", 10);
+        movieInfoService.patchMovieInfo(new MovieInfo(null, "The Dark Knight Rises", null, null, null), "abc", null).block();
+        var renamed = movieInfoService.suggestMovieInfos("dark", 10);
+        var renamedWithPrefix = movieInfoService.suggestMovieInfos("the dark", 10);
+        movieInfoService.deleteMovieInfo("abc").block();
+
+        //then
+        assertEquals(List.of("Dark Knight Rises"), names(added));
+        assertEquals(List.of(), renamed);
+        assertEquals(List.of("The Dark Knight Rises"), names(renamedWithPrefix));
+        assertEquals(0, movieInfoNameIndex.size());
+    }
+
+    @Test
+    void updateMovieInfo_withoutYearAndName() {
+        //given - stored before name and year were validated
+        when(movieInfoWriteRepositoryMock.findAndSet(eq("abc"), isNull(), any()))
+                .thenReturn(Mono.just(new MovieInfo("abc", null,
+                        null, List.of("Christian Bale"), LocalDate.parse("2012-07-20"), 3L)));
+        var update = new MovieInfo(null, null, null, List.of("Christian Bale"), LocalDate.parse("2012-07-20"));
+
+        //when
+        var updated = movieInfoService.updateMovieInfo(update, "abc");
+
+        //then
+        StepVerifier.create(updated)
+                .assertNext(movieInfo -> {
+                    assertNull(movieInfo.getName());
+                    assertNull(movieInfo.getYear());
+                    assertEquals(4L, movieInfo.getVersion());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void patchMovieInfo_setsPresentFieldsOnly() {
+        //given
+        when(movieInfoWriteRepositoryMock.findAndSet(eq("abc"), eq(3L), any()))
+                .thenReturn(Mono.just(new MovieInfo("abc", "Dark Knight Rises",
+                        2012, List.of("Christian Bale"), LocalDate.parse("2012-07-20"), 3L)));
+        var patch = new MovieInfo(null, null, 2013, null, null);
+
+        //when
+        var patched = movieInfoService.patchMovieInfo(patch, "abc", 3L);
+
+        //then
+        StepVerifier.create(patched)
+                .assertNext(movieInfo -> {
+                    assertEquals("Dark Knight Rises", movieInfo.getName());
+                    assertEquals(2013, movieInfo.getYear());
+                    assertEquals(List.of("Christian Bale"), movieInfo.getCast());
+                    assertEquals(4L, movieInfo.getVersion());
+                })
+                .verifyComplete();
+        verify(movieInfoWriteRepositoryMock).findAndSet("abc", 3L, Map.of("year", 2013));
+    }
+
+    @Test
+    void updateMovieInfo_staleExpectedVersion() {
+        //given
+        when(movieInfoWriteRepositoryMock.findAndSet(eq("abc"), eq(2L), any()))
+                .thenReturn(Mono.error(new OptimisticLockingFailureException("movieInfo abc is not at version 2")));
+        var update = new MovieInfo(null, "Dark Knight Rises Again",
+                2012, List.of("Christian Bale"), LocalDate.parse("2012-07-20"));
+
+        //when
+        var updated = movieInfoService.updateMovieInfo(update, "abc", 2L);
+
+        //then
+        StepVerifier.create(updated)
+                .expectError(OptimisticLockingFailureException.class)
+                .verify();
+    }
 
-}
\ No newline at end of file
+    private static List<String> names(List<MovieInfoSuggestion> suggestions) {
+        return suggestions.stream().map(MovieInfoSuggestion::getName).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,41 @@
+package com.reactivespring.util;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ReactiveTracerTest {
+
+    @Test
+    void sampleRate_routeOverridesDefault() {
+        var reactiveTracer = new ReactiveTracer(0.5, Map.of("movieinfos.get-by-id", 0.01));
+
+        assertEquals(0.01, reactiveTracer.sampleRate("movieinfos.get-by-id"));
+        assertEquals(0.5, reactiveTracer.sampleRate("movieinfos.get-all"));
+    }
+
+    @Test
+    void unsampledSubscription_getsTheSourceBack() {
+        var reactiveTracer = new ReactiveTracer(0.0, Map.of());
+        var source = Flux.just("a", "b");
+
+        assertSame(source, reactiveTracer.<String>flux("movieinfos.get-all").apply(source));
+    }
+
+    @Test
+    void sampledSubscription_keepsTheSignals() {
+        var reactiveTracer = new ReactiveTracer(1.0, Map.of());
+
+        StepVerifier.create(Flux.just("a", "b").transformDeferred(reactiveTracer.flux("movieinfos.get-all")))
+                .expectNext("a", "b")
+                .verifyComplete();
+        StepVerifier.create(Mono.error(new IllegalStateException()).transformDeferred(reactiveTracer.mono("movieinfos.add")))
+                .verifyError(IllegalStateException.class);
+    }
+}
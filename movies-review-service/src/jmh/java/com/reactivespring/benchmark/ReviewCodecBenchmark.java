@@ -0,0 +1,96 @@
+package com.reactivespring.benchmark;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.reactivespring.config.CodecConfig;
+import com.reactivespring.domain.Review;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Decoder;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * JSON against Smile for a List&lt;Review&gt; with the codecs WebFlux uses, the encoded size is printed in the setup.
+ * decodeStream is the bodyToFlux path of the movies-service client.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReviewCodecBenchmark {
+
+    private static final ResolvableType REVIEW_LIST = ResolvableType.forClassWithGenerics(List.class, Review.class);
+    private static final ResolvableType REVIEW = ResolvableType.forClass(Review.class);
+
+    @Param({"10", "1000"})
+    int reviews;
+
+    @Param({"application/json", "application/x-jackson-smile"})
+    String mediaType;
+
+    private final DataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+    private MediaType mimeType;
+    private Encoder<Object> encoder;
+    private Decoder<Object> decoder;
+    private List<Review> reviewList;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() {
+        mimeType = MediaType.parseMediaType(mediaType);
+        if(mimeType.equals(CodecConfig.APPLICATION_SMILE)) {
+            var smileMapper = Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build();
+            encoder = new Jackson2SmileEncoder(smileMapper, CodecConfig.APPLICATION_SMILE);
+            decoder = new Jackson2SmileDecoder(smileMapper, CodecConfig.APPLICATION_SMILE);
+        } else {
+            var jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+            encoder = new Jackson2JsonEncoder(jsonMapper);
+            decoder = new Jackson2JsonDecoder(jsonMapper);
+        }
+        reviewList = IntStream.range(0, reviews)
+                .mapToObj(i -> new Review(Integer.toHexString(0x6100000 + i) + "e1f2a3b4c5d6e7f8", (long) i % 50,
+                        "Excellent Movie, would watch again " + i, (double) (i % 10)))
+                .collect(Collectors.toList());
+        var buffer = encode();
+        encoded = new byte[buffer.readableByteCount()];
+        buffer.read(encoded);
+        System.out.printf("%n%s, %d reviews: %d bytes%n", mediaType, reviews, encoded.length);
+    }
+
+    @Benchmark
+    public DataBuffer encode() {
+        return encoder.encodeValue(reviewList, bufferFactory, REVIEW_LIST, mimeType, null);
+    }
+
+    @Benchmark
+    public Object decode() {
+        return decoder.decode(bufferFactory.wrap(encoded), REVIEW_LIST, mimeType, null);
+    }
+
+    @Benchmark
+    public Long decodeStream() {
+        return decoder.decode(Flux.just(bufferFactory.wrap(encoded)), REVIEW, mimeType, null)
+                .count()
+                .block();
+    }
+}
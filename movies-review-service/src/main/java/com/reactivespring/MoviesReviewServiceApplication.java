@@ -2,11 +2,16 @@ package com.reactivespring;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import reactor.core.scheduler.Schedulers;
 
 @SpringBootApplication
+@EnableScheduling
 public class MoviesReviewServiceApplication {
 
 	public static void main(String[] args) {
+		//before any scheduler is created, so that all of them report to the global meter registry
+		Schedulers.enableMetrics();
 		SpringApplication.run(MoviesReviewServiceApplication.class, args);
 	}
 
@@ -0,0 +1,36 @@
+package com.reactivespring.config;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+
+//Smile for the calls between our services, only when asked for with Accept: JSON comes first, so */* still gets JSON
+@Configuration
+public class CodecConfig {
+
+    public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
+    //picked before the response is written, so that its ETag can name the representation
+    public static MediaType responseType(List<MediaType> accept) {
+        return accept.stream().anyMatch(mediaType -> mediaType.equalsTypeAndSubtype(APPLICATION_SMILE))
+                ? APPLICATION_SMILE
+                : MediaType.APPLICATION_JSON;
+    }
+
+    //the Smile mapper gets the same modules and features as the JSON one, the mime type must be given or the codecs claim JSON
+    @Bean
+    public CodecCustomizer smileCodecCustomizer(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        var smileMapper = objectMapperBuilder.factory(new SmileFactory()).build();
+        return configurer -> {
+            configurer.defaultCodecs().jackson2SmileEncoder(new Jackson2SmileEncoder(smileMapper, APPLICATION_SMILE));
+            configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(smileMapper, APPLICATION_SMILE));
+        };
+    }
+}
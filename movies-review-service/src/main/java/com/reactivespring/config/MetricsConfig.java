@@ -0,0 +1,67 @@
+package com.reactivespring.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.web.server.WebFilter;
+import reactor.netty.http.HttpResources;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+//http.server.requests (per route, status and outcome) comes from the actuator, this adds what it doesn't cover
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public static BeanPostProcessor repositoryMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if(bean instanceof RepositoryFactoryBeanSupport) {
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(repositoryFactory ->
+                            repositoryFactory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) ->
+                                    proxyFactory.addAdvice(new RepositoryMetricsInterceptor(meterRegistry,
+                                            repositoryInformation.getRepositoryInterface().getSimpleName()))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public WebFilter inFlightRequestsFilter(MeterRegistry meterRegistry) {
+        var inFlight = meterRegistry.gauge("http.server.requests.in.flight", new AtomicInteger());
+        return (exchange, chain) -> chain.filter(exchange)
+                .doOnSubscribe(subscription -> inFlight.incrementAndGet())
+                .doFinally(signalType -> inFlight.decrementAndGet());
+    }
+
+    @Bean
+    public NettyServerCustomizer nettyMetricsCustomizer() {
+        //only the first two path segments are kept as uri tag, ids would make the tag unbounded
+        return httpServer -> httpServer.metrics(true, uri -> uri.replaceFirst("^(/[^/?:]*(?:/[^/?:]*)?).*$", "$1"));
+    }
+
+    @Bean
+    public MeterBinder nettyEventLoopMetrics() {
+        return registry -> {
+            var index = 0;
+            for(EventExecutor eventExecutor : HttpResources.get().onServer(true)) {
+                if(eventExecutor instanceof SingleThreadEventExecutor) {
+                    Gauge.builder("reactor.netty.eventloop.pending.tasks", (SingleThreadEventExecutor) eventExecutor,
+                                    SingleThreadEventExecutor::pendingTasks)
+                            .tag("eventloop", String.valueOf(index++))
+                            .register(registry);
+                }
+            }
+        };
+    }
+}
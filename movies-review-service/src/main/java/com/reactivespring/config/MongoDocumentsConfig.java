@@ -0,0 +1,32 @@
+package com.reactivespring.config;
+
+import com.reactivespring.common.mongo.DocumentVersionInitializer;
+import com.reactivespring.common.mongo.MongoIndexInitializer;
+import com.reactivespring.domain.Review;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+//the documents whose declared indexes and versions are checked before the service starts serving requests
+@Configuration
+public class MongoDocumentsConfig {
+
+    private static final List<Class<?>> DOCUMENTS = List.of(Review.class);
+
+    @Bean
+    public MongoIndexInitializer mongoIndexInitializer(ReactiveMongoTemplate reactiveMongoTemplate,
+                                                       @Value("${mongo.indexes.fail-on-missing:true}") boolean failOnMissing,
+                                                       @Value("${mongo.indexes.timeout:30s}") Duration timeout) {
+        return new MongoIndexInitializer(reactiveMongoTemplate, DOCUMENTS, failOnMissing, timeout);
+    }
+
+    @Bean
+    public DocumentVersionInitializer documentVersionInitializer(ReactiveMongoTemplate reactiveMongoTemplate,
+                                                                 @Value("${mongo.versions.timeout:30s}") Duration timeout) {
+        return new DocumentVersionInitializer(reactiveMongoTemplate, DOCUMENTS, timeout);
+    }
+}
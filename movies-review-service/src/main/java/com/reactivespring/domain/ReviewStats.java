@@ -0,0 +1,25 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewStats {
+
+    private Long movieInfoId;
+    private Long count;
+    private Double mean;
+    private Double min;
+    private Double max;
+    //number of reviews per whole rating point, e.g. "8" counts the ratings in [8, 9)
+    private Map<String, Long> histogram;
+
+    public static ReviewStats empty(Long movieInfoId) {
+        return new ReviewStats(movieInfoId, 0L, null, null, null, Map.of());
+    }
+}
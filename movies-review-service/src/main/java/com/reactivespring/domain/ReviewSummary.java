@@ -0,0 +1,43 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document
+public class ReviewSummary {
+
+    @Id
+    private Long movieInfoId;
+    private long count;
+    private double sum;
+    private double sumOfSquares;
+    //number of reviews per whole rating point, same buckets as ReviewStats
+    private Map<String, Long> histogram;
+    //summaries not touched since a rebuild started belong to movies that have no rated review anymore
+    private Instant updatedAt;
+
+    public static ReviewSummary empty(Long movieInfoId) {
+        return new ReviewSummary(movieInfoId, 0, 0, 0, Map.of(), null);
+    }
+
+    public Double getMean() {
+        return count > 0 ? sum / count : null;
+    }
+
+    public Double getStandardDeviation() {
+        if(count <= 0) {
+            return null;
+        }
+        var mean = sum / count;
+        return Math.sqrt(Math.max(0, sumOfSquares / count - mean * mean));
+    }
+}
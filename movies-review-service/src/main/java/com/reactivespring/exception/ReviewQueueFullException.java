@@ -0,0 +1,25 @@
+package com.reactivespring.exception;
+
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+
+public class ReviewQueueFullException extends RuntimeException {
+
+    private final HttpStatus status;
+    private final Duration retryAfter;
+
+    public ReviewQueueFullException(String message, HttpStatus status, Duration retryAfter) {
+        super(message);
+        this.status = status;
+        this.retryAfter = retryAfter;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
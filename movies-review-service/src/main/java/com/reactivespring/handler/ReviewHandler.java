@@ -1,26 +1,103 @@
 package com.reactivespring.handler;
 
 import com.mongodb.internal.connection.Server;
+import com.reactivespring.config.CodecConfig;
+import com.reactivespring.domain.BulkResult;
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewStats;
+import com.reactivespring.domain.ReviewSummary;
+import com.reactivespring.exception.ReviewQueueFullException;
+import com.reactivespring.job.ReviewWriteBehindQueue;
+import com.reactivespring.repository.ReviewBulkRepository;
 import com.reactivespring.repository.ReviewReactiveRepository;
+import com.reactivespring.repository.ReviewStatsRepository;
+import com.reactivespring.repository.ReviewSummaryRepository;
+import com.reactivespring.repository.ReviewWriteRepository;
+import com.reactivespring.util.ContinuationToken;
+import com.reactivespring.util.ETags;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.BufferOverflowStrategy;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.function.Tuple2;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Component
+@Slf4j
 public class ReviewHandler {
 
     private final ReviewReactiveRepository reviewReactiveRepository;
+    private final ReviewStatsRepository reviewStatsRepository;
+    private final ReviewSummaryRepository reviewSummaryRepository;
+    private final ReviewBulkRepository reviewBulkRepository;
+    private final ReviewWriteRepository reviewWriteRepository;
+    private final ReviewWriteBehindQueue reviewWriteBehindQueue;
+    private final Validator validator;
+    //no replay and no shared buffer, every subscriber gets its own bounded buffer in getReviewsStream
+    private final Sinks.Many<Review> reviewsSink = Sinks.many().multicast().directBestEffort();
+    private final int streamBufferSize;
+    private final Duration streamHeartbeat;
+    private final int bulkBatchSize;
 
-    public ReviewHandler(ReviewReactiveRepository reviewReactiveRepository) {
+    public ReviewHandler(ReviewReactiveRepository reviewReactiveRepository,
+                         ReviewStatsRepository reviewStatsRepository,
+                         ReviewSummaryRepository reviewSummaryRepository,
+                         ReviewBulkRepository reviewBulkRepository,
+                         ReviewWriteRepository reviewWriteRepository,
+                         ReviewWriteBehindQueue reviewWriteBehindQueue,
+                         Validator validator,
+                         @Value("${reviews.stream.buffer-size:256}") int streamBufferSize,
+                         @Value("${reviews.stream.heartbeat:15s}") Duration streamHeartbeat,
+                         @Value("${reviews.bulk.batch-size:500}") int bulkBatchSize) {
         this.reviewReactiveRepository = reviewReactiveRepository;
+        this.reviewStatsRepository = reviewStatsRepository;
+        this.reviewSummaryRepository = reviewSummaryRepository;
+        this.reviewBulkRepository = reviewBulkRepository;
+        this.reviewWriteRepository = reviewWriteRepository;
+        this.reviewWriteBehindQueue = reviewWriteBehindQueue;
+        this.validator = validator;
+        this.streamBufferSize = streamBufferSize;
+        this.streamHeartbeat = streamHeartbeat;
+        this.bulkBatchSize = bulkBatchSize;
+    }
+
+    private Mono<ServerResponse> buildReviewsResponse(ServerRequest request, Flux<Review> reviewsFlux) {
+        return ServerResponse.ok()
+                .contentType(responseType(request))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .body(reviewsFlux, Review.class);
     }
 
-    private Mono<ServerResponse> buildReviewsResponse(Flux<Review> reviewsFlux) {
-        return ServerResponse.ok().body(reviewsFlux, Review.class);
+    //functional endpoints write the first matching codec whatever the Accept header, so Smile has to be picked here
+    private static MediaType responseType(ServerRequest request) {
+        return CodecConfig.responseType(request.headers().accept());
     }
 
     public Mono<ServerResponse> addReview(ServerRequest request) {
@@ -34,50 +111,290 @@ public class ReviewHandler {
 //                });
 
 
+            if(reviewWriteBehindQueue.isEnabled()) {
+                return request.bodyToMono(Review.class)
+                        .flatMap(this::queueReview);
+            }
+
             return request.bodyToMono(Review.class)
                     .flatMap(reviewReactiveRepository::save)
+                    .flatMap(savedReview -> reviewSummaryRepository.add(savedReview.getMovieInfoId(), savedReview.getRating())
+                            .thenReturn(savedReview))
+                    .doOnNext(this::publish)
                     .flatMap(ServerResponse.status(HttpStatus.CREATED)::bodyValue);
      }
 
+    private Mono<ServerResponse> queueReview(Review review) {
+        Mono<Review> written;
+        try {
+            written = reviewWriteBehindQueue.offer(review);
+        } catch (ReviewQueueFullException ex) {
+            return ServerResponse.status(ex.getStatus())
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfter().toSeconds()))
+                    .bodyValue(ex.getMessage());
+        }
+
+        written = written.doOnNext(this::publish);
+        if(reviewWriteBehindQueue.getAckMode() == ReviewWriteBehindQueue.AckMode.PERSISTED) {
+            return written.flatMap(ServerResponse.status(HttpStatus.CREATED)::bodyValue);
+        }
+        //failed writes are already logged by the queue
+        written.subscribe(savedReview -> {}, ex -> {});
+        return ServerResponse.status(HttpStatus.ACCEPTED).bodyValue(review);
+    }
+
+    //one JSON review per line in, one BulkResult per line out
+    public Mono<ServerResponse> bulkAddReviews(ServerRequest request) {
+
+        var results = request.bodyToFlux(Review.class)
+                .index()
+                .buffer(bulkBatchSize)
+                //one batch in flight: the request body is only read as fast as mongo writes the batches
+                .concatMap(this::insertBatch, 1);
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_NDJSON).body(results, BulkResult.class);
+    }
+
+    private Flux<BulkResult> insertBatch(List<Tuple2<Long, Review>> batch) {
+        var invalid = new ArrayList<BulkResult>();
+        var valid = new ArrayList<Tuple2<Long, Review>>(batch.size());
+        for(var record : batch) {
+            var violations = validator.validate(record.getT2());
+            if(violations.isEmpty()) {
+                valid.add(record);
+            } else {
+                invalid.add(BulkResult.failed(record.getT1(), record.getT2().getReviewId(), HttpStatus.BAD_REQUEST,
+                        violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining(","))));
+            }
+        }
+        if(valid.isEmpty()) {
+            return Flux.fromIterable(invalid);
+        }
+
+        return reviewBulkRepository.insertAll(valid)
+                .collectList()
+                .flatMapMany(inserted -> {
+                    var insertedIndexes = inserted.stream()
+                            .filter(result -> result.getStatus() == HttpStatus.CREATED.value())
+                            .map(BulkResult::getIndex)
+                            .collect(Collectors.toSet());
+                    var insertedReviews = valid.stream()
+                            .filter(record -> insertedIndexes.contains(record.getT1()))
+                            .map(Tuple2::getT2)
+                            .collect(Collectors.toList());
+                    return reviewSummaryRepository.addAll(insertedReviews)
+                            .doOnSuccess(done -> insertedReviews.forEach(this::publish))
+                            .thenMany(Flux.fromIterable(inserted));
+                })
+                .concatWith(Flux.fromIterable(invalid))
+                .sort(Comparator.comparingLong(BulkResult::getIndex));
+    }
+
+    private void publish(Review review) {
+        //saves complete on different threads, retry while another emission is in progress
+        reviewsSink.emitNext(review, (signalType, emitResult) -> emitResult == Sinks.EmitResult.FAIL_NON_SERIALIZED);
+    }
+
+    public Mono<ServerResponse> getReviewsStream(ServerRequest request) {
+
+        var movieInfoId = request.queryParam("movieInfoId").map(ReviewHandler::parseMovieInfoId);
+        var reviewsFlux = reviewsSink.asFlux()
+                .filter(review -> movieInfoId.map(id -> id.equals(review.getMovieInfoId())).orElse(true))
+                //a slow client loses its oldest pending reviews instead of growing the heap
+                .onBackpressureBuffer(streamBufferSize,
+                        dropped -> log.debug("Dropped review {} for a slow stream subscriber", dropped.getReviewId()),
+                        BufferOverflowStrategy.DROP_OLDEST)
+                .map(review -> ServerSentEvent.builder(review).build());
+
+        //the first heartbeat commits the response right away, the next ones let us notice clients that went away
+        var heartbeats = Flux.interval(Duration.ZERO, streamHeartbeat)
+                .map(tick -> ServerSentEvent.<Review>builder().comment("heartbeat").build());
+
+        return ServerResponse.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .body(Flux.merge(heartbeats, reviewsFlux), new ParameterizedTypeReference<ServerSentEvent<Review>>() {});
+    }
+
     public Mono<ServerResponse> getReviews(ServerRequest request) {
 
-        var movieInfoId = request.queryParam("movieInfoId");
+        var movieInfoId = request.queryParam("movieInfoId").map(ReviewHandler::parseMovieInfoId);
+        var limit = request.queryParam("limit");
 
+        if(limit.isPresent()) {
+            return getReviewsPage(movieInfoId, request.queryParam("after"), limit.get());
+        }
+        if(request.headers().accept().contains(MediaType.APPLICATION_NDJSON)) {
+            //written one review per line as it is read, instead of being collected into a single JSON array
+            var reviewsFlux = movieInfoId.isPresent()
+                    ? reviewReactiveRepository.findReviewsByMovieInfoId(movieInfoId.get())
+                    : reviewReactiveRepository.findAll();
+            return ServerResponse.ok().contentType(MediaType.APPLICATION_NDJSON).body(reviewsFlux, Review.class);
+        }
         if(movieInfoId.isPresent()) {
-            var reviewsFlux = reviewReactiveRepository.findReviewsByMovieInfoId(Long.valueOf(movieInfoId.get()));
-            return buildReviewsResponse(reviewsFlux);
+            //collected for the ETag, a matching If-None-Match gets a 304 and the list is never encoded
+            var representation = responseType(request);
+            return reviewReactiveRepository.findReviewsByMovieInfoId(movieInfoId.get())
+                    .collectList()
+                    .flatMap(reviews -> ServerResponse.ok()
+                            .contentType(representation)
+                            .eTag(ETags.ofAll(reviews, Review::getReviewId, Review::getVersion, representation))
+                            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                            .bodyValue(reviews));
         }
         var reviewsFlux = reviewReactiveRepository.findAll();
-        return ServerResponse.ok().body(reviewsFlux, Review.class);
+        return buildReviewsResponse(request, reviewsFlux);
 
     }
 
+    private Mono<ServerResponse> getReviewsPage(Optional<Long> movieInfoId, Optional<String> after, String limit) {
 
+        var pageSize = ContinuationToken.pageSize(parseLimit(limit));
+        var afterId = after.map(ContinuationToken::decode);
+        var pageable = PageRequest.of(0, pageSize, Sort.by("reviewId"));
+
+        Flux<Review> reviewsFlux;
+        if(afterId.isEmpty()) {
+            reviewsFlux = movieInfoId.isPresent()
+                    ? reviewReactiveRepository.findReviewsByMovieInfoId(movieInfoId.get(), pageable)
+                    : reviewReactiveRepository.findAllBy(pageable);
+        } else if(ObjectId.isValid(afterId.get())) {
+            reviewsFlux = movieInfoId.isPresent()
+                    ? reviewReactiveRepository.findReviewsByMovieInfoIdAndReviewIdGreaterThan(movieInfoId.get(), afterId.get(), pageable)
+                    : reviewReactiveRepository.findByReviewIdGreaterThan(afterId.get(), pageable);
+        } else {
+            reviewsFlux = movieInfoId.isPresent()
+                    ? reviewReactiveRepository.findReviewsByMovieInfoIdAndStringReviewIdGreaterThan(movieInfoId.get(), afterId.get(), pageable)
+                    : reviewReactiveRepository.findByStringReviewIdGreaterThan(afterId.get(), pageable);
+        }
+
+        return reviewsFlux.collectList()
+                .flatMap(page -> {
+                    var response = ServerResponse.ok();
+                    if(page.size() == pageSize) {
+                        var lastId = page.get(page.size() - 1).getReviewId();
+                        response.header(ContinuationToken.HEADER, ContinuationToken.encode(lastId));
+                    }
+                    return response.bodyValue(page);
+                });
+    }
+
+    private static int parseLimit(String limit) {
+        try {
+            return Integer.parseInt(limit);
+        } catch (NumberFormatException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be a number", ex);
+        }
+    }
+
+    public Mono<ServerResponse> batchGetReviews(ServerRequest request) {
+
+        return request.bodyToMono(new ParameterizedTypeReference<List<String>>() {})
+                .map(movieInfoIds -> movieInfoIds.stream()
+                        //reviews are keyed by numeric movieInfoId, other ids can't have any review
+                        .filter(movieInfoId -> movieInfoId.matches("\\d+"))
+                        .map(Long::valueOf)
+                        .collect(Collectors.toSet()))
+                .flatMap(movieInfoIds -> buildReviewsResponse(request, reviewReactiveRepository.findReviewsByMovieInfoIdIn(movieInfoIds)));
+    }
+
+    public Mono<ServerResponse> getReviewStats(ServerRequest request) {
+
+        var movieInfoIds = request.queryParam("movieInfoIds");
+        if(movieInfoIds.isPresent()) {
+            var ids = Arrays.stream(movieInfoIds.get().split(","))
+                    .map(String::trim)
+                    .filter(id -> !id.isEmpty())
+                    .map(ReviewHandler::parseMovieInfoId)
+                    .collect(Collectors.toSet());
+            if(ids.isEmpty()) {
+                return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "movieInfoIds must not be empty"));
+            }
+            //movies without reviews are left out of the list
+            return ServerResponse.ok().body(reviewStatsRepository.findStatsByMovieInfoIds(ids), ReviewStats.class);
+        }
+
+        var movieInfoId = request.queryParam("movieInfoId")
+                .map(ReviewHandler::parseMovieInfoId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "movieInfoId or movieInfoIds is required"));
+        return reviewStatsRepository.findStatsByMovieInfoIds(List.of(movieInfoId))
+                .next()
+                .defaultIfEmpty(ReviewStats.empty(movieInfoId))
+                .flatMap(ServerResponse.ok()::bodyValue);
+    }
+
+    public Mono<ServerResponse> getReviewSummary(ServerRequest request) {
+
+        var movieInfoId = request.queryParam("movieInfoId")
+                .map(ReviewHandler::parseMovieInfoId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "movieInfoId is required"));
+        return reviewSummaryRepository.findById(movieInfoId)
+                .defaultIfEmpty(ReviewSummary.empty(movieInfoId))
+                .flatMap(ServerResponse.ok()::bodyValue);
+    }
+
+    private static Long parseMovieInfoId(String movieInfoId) {
+        try {
+            return Long.valueOf(movieInfoId);
+        } catch (NumberFormatException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "movieInfoId must be a number", ex);
+        }
+    }
 
     public Mono<ServerResponse> updateReview(ServerRequest request) {
-        var reviewId = request.pathVariable("id");
-        var existingReview = reviewReactiveRepository.findById(reviewId);
-        return existingReview
-                .flatMap(review -> request.bodyToMono(Review.class)
-                    .map(reqReview -> {
-                        review.setComment(reqReview.getComment());
-                        review.setRating(reqReview.getRating());
-                        return review;
-                    })
-                        .flatMap(reviewReactiveRepository::save)
-                        .flatMap(savedReview -> ServerResponse.ok().bodyValue(savedReview))
-                );
+        return modifyReview(request, false);
     }
 
-    public Mono<ServerResponse> deleteReview(ServerRequest request) {
-        var reviewId = request.pathVariable("id");
-        var existingReview = reviewReactiveRepository.findById(reviewId);
-        return existingReview.
-                flatMap(review -> reviewReactiveRepository.deleteById(reviewId))
-                .then(ServerResponse.noContent().build());
+    //the fields left out of the body keep their stored value
+    public Mono<ServerResponse> patchReview(ServerRequest request) {
+        return modifyReview(request, true);
     }
 
+    //findAndModify returns the review it replaced, so the summary always replaces the rating that was stored
+    private Mono<ServerResponse> modifyReview(ServerRequest request, boolean partial) {
+        var reviewId = request.pathVariable("id");
+        var expectedVersion = ETags.expectedVersion(request.headers().firstHeader(HttpHeaders.IF_MATCH), reviewId);
+        var representation = responseType(request);
+        return request.bodyToMono(Review.class)
+                .flatMap(changes -> {
+                    var fields = new LinkedHashMap<String, Object>();
+                    putField(fields, "comment", changes.getComment(), partial);
+                    putField(fields, "rating", changes.getRating(), partial);
+                    return reviewWriteRepository.findAndSet(reviewId, expectedVersion, fields)
+                            .flatMap(previous -> {
+                                var previousVersion = previous.getVersion() != null ? previous.getVersion() : 0L;
+                                var savedReview = new Review(previous.getReviewId(), previous.getMovieInfoId(),
+                                        changed(previous.getComment(), changes.getComment(), partial),
+                                        changed(previous.getRating(), changes.getRating(), partial),
+                                        previousVersion + 1);
+                                return reviewSummaryRepository.replace(savedReview.getMovieInfoId(), previous.getRating(), savedReview.getRating())
+                                        .thenReturn(savedReview);
+                            });
+                })
+                .flatMap(savedReview -> ServerResponse.ok()
+                        .contentType(representation)
+                        .eTag(ETags.of(reviewId, savedReview.getVersion(), representation))
+                        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                        .bodyValue(savedReview))
+                .switchIfEmpty(ServerResponse.notFound().build())
+                .onErrorResume(OptimisticLockingFailureException.class, ex -> ServerResponse.status(HttpStatus.PRECONDITION_FAILED)
+                        .bodyValue("review was modified, fetch it again"));
+    }
 
+    private static void putField(Map<String, Object> fields, String field, Object value, boolean partial) {
+        if(!partial || value != null) {
+            fields.put(field, value);
+        }
+    }
 
+    private static <T> T changed(T previous, T value, boolean partial) {
+        return partial && value == null ? previous : value;
+    }
 
+    //findAndRemove hands back the removed review, only the request that removed it takes it out of the summary
+    public Mono<ServerResponse> deleteReview(ServerRequest request) {
+        var reviewId = request.pathVariable("id");
+        return reviewWriteRepository.findAndRemove(reviewId)
+                .flatMap(review -> reviewSummaryRepository.remove(review.getMovieInfoId(), review.getRating())
+                        .then(ServerResponse.noContent().build()))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
 }
@@ -0,0 +1,35 @@
+package com.reactivespring.job;
+
+import com.reactivespring.repository.ReviewSummaryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Component
+@Slf4j
+public class ReviewSummaryRebuildJob {
+
+    private final ReviewSummaryRepository reviewSummaryRepository;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public ReviewSummaryRebuildJob(ReviewSummaryRepository reviewSummaryRepository) {
+        this.reviewSummaryRepository = reviewSummaryRepository;
+    }
+
+    //"-" disables the job
+    @Scheduled(cron = "${reviews.summary.rebuild-cron:-}")
+    public void rebuild() {
+        //a rebuild still running from the previous trigger is left alone
+        if(!running.compareAndSet(false, true)) {
+            log.warn("Review summary rebuild already in progress, skipping");
+            return;
+        }
+        reviewSummaryRepository.rebuild()
+                .doFinally(signalType -> running.set(false))
+                .subscribe(
+                        rebuilt -> log.info("Rebuilt {} review summaries", rebuilt),
+                        ex -> log.error("Review summary rebuild failed", ex));
+    }
+}
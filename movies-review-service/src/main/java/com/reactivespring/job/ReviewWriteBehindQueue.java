@@ -0,0 +1,227 @@
+package com.reactivespring.job;
+
+import com.reactivespring.domain.BulkResult;
+import com.reactivespring.domain.Review;
+import com.reactivespring.exception.ReviewQueueFullException;
+import com.reactivespring.repository.ReviewBulkRepository;
+import com.reactivespring.repository.ReviewSummaryRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind mode of addReview: reviews wait in a bounded queue and are written with one insertMany
+ * per batch, when batch-size reviews are queued or every flush-interval, whichever comes first.
+ * Stopped after the web server, so the reviews accepted before shutdown are still written.
+ */
+@Component
+@Slf4j
+public class ReviewWriteBehindQueue implements SmartLifecycle {
+
+    public enum AckMode {
+        //answered once the review is queued, lost if the process dies before the next flush
+        ACCEPTED,
+        //answered once the batch holding the review is written
+        PERSISTED
+    }
+
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final ReviewBulkRepository reviewBulkRepository;
+    private final ReviewSummaryRepository reviewSummaryRepository;
+    private final boolean enabled;
+    private final AckMode ackMode;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Duration drainTimeout;
+    private final BlockingQueue<PendingReview> queue;
+    private final AtomicBoolean flushing = new AtomicBoolean();
+    private volatile boolean accepting;
+    private volatile Disposable flushTimer;
+
+    public ReviewWriteBehindQueue(ReviewBulkRepository reviewBulkRepository,
+                                  ReviewSummaryRepository reviewSummaryRepository,
+                                  ObjectProvider<MeterRegistry> meterRegistry,
+                                  @Value("${reviews.write-behind.enabled:false}") boolean enabled,
+                                  @Value("${reviews.write-behind.ack:PERSISTED}") AckMode ackMode,
+                                  @Value("${reviews.write-behind.queue-capacity:10000}") int queueCapacity,
+                                  @Value("${reviews.write-behind.batch-size:500}") int batchSize,
+                                  @Value("${reviews.write-behind.flush-interval:100ms}") Duration flushInterval,
+                                  @Value("${reviews.write-behind.drain-timeout:30s}") Duration drainTimeout) {
+        this.reviewBulkRepository = reviewBulkRepository;
+        this.reviewSummaryRepository = reviewSummaryRepository;
+        this.enabled = enabled;
+        this.ackMode = ackMode;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.drainTimeout = drainTimeout;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        meterRegistry.ifAvailable(registry -> registry.gauge("reviews.write-behind.queue.size", queue, BlockingQueue::size));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public AckMode getAckMode() {
+        return ackMode;
+    }
+
+    /**
+     * Queues the review and returns a Mono completing once it is written, or failing with the status of its write.
+     * Throws ReviewQueueFullException right away when the review can't be queued.
+     */
+    public Mono<Review> offer(Review review) {
+        if(!accepting) {
+            throw new ReviewQueueFullException("Review queue is draining", HttpStatus.SERVICE_UNAVAILABLE, RETRY_AFTER);
+        }
+        //the id and version are known before the write, so an ACCEPTED answer can already carry them
+        if(review.getReviewId() == null) {
+            review.setReviewId(new ObjectId().toHexString());
+        }
+        review.setVersion(0L);
+        //the flush thread writes its own copy, the caller may still be serializing review into the ACCEPTED answer
+        var pending = new PendingReview(new Review(review.getReviewId(), review.getMovieInfoId(),
+                review.getComment(), review.getRating(), review.getVersion()));
+        if(!queue.offer(pending)) {
+            throw new ReviewQueueFullException("Review queue is full", HttpStatus.TOO_MANY_REQUESTS, RETRY_AFTER);
+        }
+        if(queue.size() >= batchSize) {
+            flush();
+        }
+        return pending.written.asMono();
+    }
+
+    //at most one batch is written at a time, the next one starts as soon as it is done if enough reviews are waiting
+    void flush() {
+        if(!flushing.compareAndSet(false, true)) {
+            return;
+        }
+        var batch = new ArrayList<PendingReview>(batchSize);
+        queue.drainTo(batch, batchSize);
+        if(batch.isEmpty()) {
+            flushing.set(false);
+            return;
+        }
+        write(batch)
+                .doFinally(signalType -> {
+                    flushing.set(false);
+                    if(queue.size() >= batchSize || (!accepting && !queue.isEmpty())) {
+                        flush();
+                    }
+                })
+                .subscribe();
+    }
+
+    private Mono<Void> write(List<PendingReview> batch) {
+        var records = new ArrayList<Tuple2<Long, Review>>(batch.size());
+        for(int i = 0; i < batch.size(); i++) {
+            records.add(Tuples.of((long) i, batch.get(i).review));
+        }
+
+        return reviewBulkRepository.insertAll(records)
+                .collectList()
+                .onErrorResume(ex -> {
+                    log.error("Failed to write a batch of {} queued reviews", batch.size(), ex);
+                    batch.forEach(pending -> pending.written.tryEmitError(
+                            new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Review could not be written", ex)));
+                    return Mono.empty();
+                })
+                .flatMap(results -> {
+                    var inserted = results.stream()
+                            .filter(result -> result.getStatus() == HttpStatus.CREATED.value())
+                            .map(result -> batch.get((int) result.getIndex()).review)
+                            .collect(Collectors.toList());
+                    //the reviews are written at this point, a failed summary update is left to the next rebuild
+                    return reviewSummaryRepository.addAll(inserted)
+                            .onErrorResume(ex -> {
+                                log.error("Failed to update the summaries of {} queued reviews", inserted.size(), ex);
+                                return Mono.empty();
+                            })
+                            .doFinally(signalType -> results.forEach(result -> complete(batch.get((int) result.getIndex()), result)));
+                });
+    }
+
+    private void complete(PendingReview pending, BulkResult result) {
+        if(result.getStatus() == HttpStatus.CREATED.value()) {
+            pending.written.tryEmitValue(pending.review);
+        } else {
+            log.warn("Queued review {} was not written: {}", pending.review.getReviewId(), result.getMessage());
+            pending.written.tryEmitError(new ResponseStatusException(HttpStatus.valueOf(result.getStatus()), result.getMessage()));
+        }
+    }
+
+    @Override
+    public void start() {
+        if(!enabled) {
+            return;
+        }
+        accepting = true;
+        flushTimer = Flux.interval(flushInterval, flushInterval)
+                .subscribe(tick -> flush());
+    }
+
+    @Override
+    public void stop() {
+        if(!accepting) {
+            return;
+        }
+        accepting = false;
+        flushTimer.dispose();
+
+        var deadline = System.nanoTime() + drainTimeout.toNanos();
+        while((!queue.isEmpty() || flushing.get()) && System.nanoTime() < deadline) {
+            flush();
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if(!queue.isEmpty()) {
+            log.error("Shut down with {} queued reviews not written", queue.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return accepting;
+    }
+
+    //stopped after the web server (DEFAULT_PHASE - 1), which has stopped taking new reviews by then
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 2;
+    }
+
+    private static class PendingReview {
+
+        private final Review review;
+        private final Sinks.One<Review> written = Sinks.one();
+
+        private PendingReview(Review review) {
+            this.review = review;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.reactivespring.repository;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.InsertManyOptions;
+import com.reactivespring.domain.BulkResult;
+import com.reactivespring.domain.Review;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Inserts a batch of reviews with a single unordered insertMany, a failing review doesn't stop the others.
+ */
+@Repository
+public class ReviewBulkRepository {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public ReviewBulkRepository(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    public Flux<BulkResult> insertAll(List<Tuple2<Long, Review>> records) {
+        var documents = new ArrayList<Document>(records.size());
+        for(var record : records) {
+            var review = record.getT2();
+            if(review.getReviewId() == null) {
+                review.setReviewId(new ObjectId().toHexString());
+            }
+            review.setVersion(0L);
+            var document = new Document();
+            reactiveMongoTemplate.getConverter().write(review, document);
+            documents.add(document);
+        }
+
+        return reactiveMongoTemplate.getCollection(reactiveMongoTemplate.getCollectionName(Review.class))
+                .flatMap(collection -> Mono.from(collection.insertMany(documents, new InsertManyOptions().ordered(false))))
+                .map(insertManyResult -> toResults(records, Map.of()))
+                .onErrorResume(MongoBulkWriteException.class, ex -> Mono.just(toResults(records,
+                        ex.getWriteErrors().stream().collect(Collectors.toMap(BulkWriteError::getIndex, Function.identity())))))
+                .flatMapIterable(Function.identity());
+    }
+
+    private static List<BulkResult> toResults(List<Tuple2<Long, Review>> records, Map<Integer, BulkWriteError> errors) {
+        var results = new ArrayList<BulkResult>(records.size());
+        for(int i = 0; i < records.size(); i++) {
+            var index = records.get(i).getT1();
+            var id = records.get(i).getT2().getReviewId();
+            var error = errors.get(i);
+            if(error == null) {
+                results.add(BulkResult.of(index, id, HttpStatus.CREATED));
+            } else if(error.getCode() == DUPLICATE_KEY) {
+                results.add(BulkResult.failed(index, id, HttpStatus.CONFLICT, "review.reviewId already exists"));
+            } else {
+                results.add(BulkResult.failed(index, id, HttpStatus.INTERNAL_SERVER_ERROR, error.getMessage()));
+            }
+        }
+        return results;
+    }
+}
@@ -1,11 +1,32 @@
 package com.reactivespring.repository;
 
 import com.reactivespring.domain.Review;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
 
+import java.util.Collection;
+
 public interface ReviewReactiveRepository extends ReactiveMongoRepository<Review, String> {
 
     Flux<Review> findReviewsByMovieInfoId(Long movieInfoId);
 
+    Flux<Review> findReviewsByMovieInfoIdIn(Collection<Long> movieInfoIds);
+
+    Flux<Review> findAllBy(Pageable pageable);
+
+    Flux<Review> findReviewsByMovieInfoId(Long movieInfoId, Pageable pageable);
+
+    Flux<Review> findByReviewIdGreaterThan(String reviewId, Pageable pageable);
+
+    Flux<Review> findReviewsByMovieInfoIdAndReviewIdGreaterThan(Long movieInfoId, String reviewId, Pageable pageable);
+
+    //ids that are not ObjectIds are stored as strings, which sort before every ObjectId
+    @Query("{ '$or': [ { '_id': { '$gt': ?0 } }, { '_id': { '$type': 'objectId' } } ] }")
+    Flux<Review> findByStringReviewIdGreaterThan(String reviewId, Pageable pageable);
+
+    @Query("{ 'movieInfoId': ?0, '$or': [ { '_id': { '$gt': ?1 } }, { '_id': { '$type': 'objectId' } } ] }")
+    Flux<Review> findReviewsByMovieInfoIdAndStringReviewIdGreaterThan(Long movieInfoId, String reviewId, Pageable pageable);
+
 }
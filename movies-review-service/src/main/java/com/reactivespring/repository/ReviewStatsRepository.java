@@ -0,0 +1,77 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewStats;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Computes the rating statistics inside Mongo, only one small document per movie is sent back.
+ */
+@Repository
+public class ReviewStatsRepository {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public ReviewStatsRepository(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    public Flux<ReviewStats> findStatsByMovieInfoIds(Collection<Long> movieInfoIds) {
+        var aggregation = Aggregation.newAggregation(
+                Aggregation.match(where("movieInfoId").in(movieInfoIds).and("rating").ne(null)),
+                //one group per movie and whole rating point ...
+                stage("$group", new Document("_id", new Document("movieInfoId", "$movieInfoId")
+                                .append("bucket", new Document("$floor", "$rating")))
+                        .append("count", new Document("$sum", 1))
+                        .append("sum", new Document("$sum", "$rating"))
+                        .append("min", new Document("$min", "$rating"))
+                        .append("max", new Document("$max", "$rating"))),
+                //... folded into one document per movie, the buckets become the histogram
+                stage("$group", new Document("_id", "$_id.movieInfoId")
+                        .append("count", new Document("$sum", "$count"))
+                        .append("sum", new Document("$sum", "$sum"))
+                        .append("min", new Document("$min", "$min"))
+                        .append("max", new Document("$max", "$max"))
+                        .append("histogram", new Document("$push",
+                                new Document("bucket", "$_id.bucket").append("count", "$count")))),
+                stage("$sort", new Document("_id", 1)));
+
+        return reactiveMongoTemplate.aggregate(aggregation, Review.class, Document.class)
+                .map(ReviewStatsRepository::toReviewStats);
+    }
+
+    private static AggregationOperation stage(String operator, Document definition) {
+        return context -> new Document(operator, definition);
+    }
+
+    private static ReviewStats toReviewStats(Document document) {
+        var count = document.get("count", Number.class).longValue();
+        var sum = document.get("sum", Number.class).doubleValue();
+
+        var histogram = new LinkedHashMap<String, Long>();
+        document.getList("histogram", Document.class).stream()
+                .sorted(Comparator.comparingDouble(bucket -> bucket.get("bucket", Number.class).doubleValue()))
+                .forEach(bucket -> histogram.put(
+                        String.valueOf(bucket.get("bucket", Number.class).longValue()),
+                        bucket.get("count", Number.class).longValue()));
+
+        return new ReviewStats(
+                document.get("_id", Number.class).longValue(),
+                count,
+                sum / count,
+                document.get("min", Number.class).doubleValue(),
+                document.get("max", Number.class).doubleValue(),
+                histogram);
+    }
+}
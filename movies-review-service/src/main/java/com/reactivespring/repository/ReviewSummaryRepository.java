@@ -0,0 +1,174 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Keeps one ReviewSummary per movie up to date with single document $inc upserts,
+ * so reading the rating summary of a movie costs the same whatever its number of reviews.
+ */
+@Repository
+public class ReviewSummaryRepository {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public ReviewSummaryRepository(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    public Mono<ReviewSummary> findById(Long movieInfoId) {
+        return reactiveMongoTemplate.findById(movieInfoId, ReviewSummary.class);
+    }
+
+    public Mono<Void> add(Long movieInfoId, Double rating) {
+        if(movieInfoId == null || rating == null) {
+            return Mono.empty();
+        }
+        return increment(movieInfoId, new Update()
+                .inc("count", 1)
+                .inc("sum", rating)
+                .inc("sumOfSquares", rating * rating)
+                .inc(histogramField(rating), 1));
+    }
+
+    public Mono<Void> remove(Long movieInfoId, Double rating) {
+        if(movieInfoId == null || rating == null) {
+            return Mono.empty();
+        }
+        return increment(movieInfoId, new Update()
+                .inc("count", -1)
+                .inc("sum", -rating)
+                .inc("sumOfSquares", -rating * rating)
+                .inc(histogramField(rating), -1));
+    }
+
+    public Mono<Void> replace(Long movieInfoId, Double oldRating, Double newRating) {
+        if(oldRating == null) {
+            return add(movieInfoId, newRating);
+        }
+        if(newRating == null) {
+            return remove(movieInfoId, oldRating);
+        }
+        if(movieInfoId == null || oldRating.equals(newRating)) {
+            return Mono.empty();
+        }
+        var update = new Update()
+                .inc("sum", newRating - oldRating)
+                .inc("sumOfSquares", newRating * newRating - oldRating * oldRating);
+        //the same path can't be incremented twice in one update
+        if(!histogramField(oldRating).equals(histogramField(newRating))) {
+            update.inc(histogramField(oldRating), -1)
+                    .inc(histogramField(newRating), 1);
+        }
+        return increment(movieInfoId, update);
+    }
+
+    //one upsert per movie for a batch of new reviews
+    public Mono<Void> addAll(Collection<Review> reviews) {
+        var deltas = new LinkedHashMap<Long, ReviewSummary>();
+        for(var review : reviews) {
+            if(review.getMovieInfoId() == null || review.getRating() == null) {
+                continue;
+            }
+            var rating = review.getRating();
+            var delta = deltas.computeIfAbsent(review.getMovieInfoId(),
+                    movieInfoId -> new ReviewSummary(movieInfoId, 0, 0, 0, new HashMap<>(), null));
+            delta.setCount(delta.getCount() + 1);
+            delta.setSum(delta.getSum() + rating);
+            delta.setSumOfSquares(delta.getSumOfSquares() + rating * rating);
+            delta.getHistogram().merge(histogramField(rating), 1L, Long::sum);
+        }
+        return Flux.fromIterable(deltas.values())
+                .flatMap(delta -> {
+                    var update = new Update()
+                            .inc("count", delta.getCount())
+                            .inc("sum", delta.getSum())
+                            .inc("sumOfSquares", delta.getSumOfSquares());
+                    delta.getHistogram().forEach(update::inc);
+                    return increment(delta.getMovieInfoId(), update);
+                }, 8)
+                .then();
+    }
+
+    private Mono<Void> increment(Long movieInfoId, Update update) {
+        //written by collection name, so the histogram keys are left as is by the entity mapping
+        return reactiveMongoTemplate.upsert(Query.query(where("_id").is(movieInfoId)),
+                        update.set("updatedAt", Instant.now()),
+                        reactiveMongoTemplate.getCollectionName(ReviewSummary.class))
+                .then();
+    }
+
+    private static String histogramField(double rating) {
+        return "histogram." + (long) Math.floor(rating);
+    }
+
+    /**
+     * Recomputes every summary from the reviews and drops the ones of movies without rated reviews.
+     * Increments landing between the aggregation and the save of a summary are overwritten, the next rebuild fixes them.
+     */
+    public Mono<Long> rebuild() {
+        var startedAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        var aggregation = Aggregation.newAggregation(
+                Aggregation.match(where("movieInfoId").ne(null).and("rating").ne(null)),
+                stage("$group", new Document("_id", new Document("movieInfoId", "$movieInfoId")
+                                .append("bucket", new Document("$floor", "$rating")))
+                        .append("count", new Document("$sum", 1))
+                        .append("sum", new Document("$sum", "$rating"))
+                        .append("sumOfSquares", new Document("$sum", new Document("$multiply", List.of("$rating", "$rating"))))),
+                stage("$group", new Document("_id", "$_id.movieInfoId")
+                        .append("count", new Document("$sum", "$count"))
+                        .append("sum", new Document("$sum", "$sum"))
+                        .append("sumOfSquares", new Document("$sum", "$sumOfSquares"))
+                        .append("histogram", new Document("$push",
+                                new Document("bucket", "$_id.bucket").append("count", "$count")))));
+
+        return reactiveMongoTemplate.aggregate(aggregation, Review.class, Document.class)
+                .map(document -> toReviewSummary(document, startedAt))
+                .flatMap(reactiveMongoTemplate::save, 8)
+                .count()
+                .flatMap(rebuilt -> reactiveMongoTemplate.remove(Query.query(new Criteria().orOperator(
+                                        where("updatedAt").lt(startedAt),
+                                        where("updatedAt").exists(false))),
+                                ReviewSummary.class)
+                        .thenReturn(rebuilt));
+    }
+
+    private static AggregationOperation stage(String operator, Document definition) {
+        return context -> new Document(operator, definition);
+    }
+
+    private static ReviewSummary toReviewSummary(Document document, Instant updatedAt) {
+        var histogram = new HashMap<String, Long>();
+        document.getList("histogram", Document.class)
+                .forEach(bucket -> histogram.put(
+                        String.valueOf(bucket.get("bucket", Number.class).longValue()),
+                        bucket.get("count", Number.class).longValue()));
+
+        return new ReviewSummary(
+                document.get("_id", Number.class).longValue(),
+                document.get("count", Number.class).longValue(),
+                document.get("sum", Number.class).doubleValue(),
+                document.get("sumOfSquares", Number.class).doubleValue(),
+                histogram,
+                updatedAt);
+    }
+}
@@ -0,0 +1,55 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Updates and deletes a review in a single round trip with findAndModify and findAndRemove,
+ * instead of reading it first and writing the whole document back.
+ */
+@Repository
+public class ReviewWriteRepository {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public ReviewWriteRepository(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    //the review as it was before the $set, the summary needs the rating that was replaced
+    public Mono<Review> findAndSet(String reviewId, Long expectedVersion, Map<String, Object> fields) {
+        var update = new Update();
+        fields.forEach(update::set);
+        update.inc("version", 1);
+        var query = Query.query(where("reviewId").is(reviewId));
+        if(expectedVersion != null) {
+            query.addCriteria(where("version").is(expectedVersion));
+        }
+        return reactiveMongoTemplate.findAndModify(query, update, Review.class)
+                .switchIfEmpty(notFoundOrConflict(reviewId, expectedVersion));
+    }
+
+    public Mono<Review> findAndRemove(String reviewId) {
+        return reactiveMongoTemplate.findAndRemove(Query.query(where("reviewId").is(reviewId)), Review.class);
+    }
+
+    //only a conditional update that matched nothing pays for a second round trip
+    private Mono<Review> notFoundOrConflict(String reviewId, Long expectedVersion) {
+        if(expectedVersion == null) {
+            return Mono.empty();
+        }
+        return reactiveMongoTemplate.exists(Query.query(where("reviewId").is(reviewId)), Review.class)
+                .flatMap(exists -> exists
+                        ? Mono.error(new OptimisticLockingFailureException("review " + reviewId + " is not at version " + expectedVersion))
+                        : Mono.empty());
+    }
+}
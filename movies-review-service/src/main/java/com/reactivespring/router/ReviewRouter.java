@@ -20,11 +20,17 @@ public class ReviewRouter {
                         builder
                             .POST("", request -> reviewHandler.addReview(request))
                             .GET("",  request -> reviewHandler.getReviews(request))
+                            .GET("/stream", request -> reviewHandler.getReviewsStream(request))
+                            .GET("/stats", request -> reviewHandler.getReviewStats(request))
+                            .GET("/summary", request -> reviewHandler.getReviewSummary(request))
                             .PUT("/{id}", request -> reviewHandler.updateReview(request))
+                            .PATCH("/{id}", request -> reviewHandler.patchReview(request))
                             .DELETE("/{id}", request -> reviewHandler.deleteReview(request))
                         ;
 
                     })
+                .POST("/v1/reviews:batchGet", request -> reviewHandler.batchGetReviews(request))
+                .POST("/v1/reviews:bulk", request -> reviewHandler.bulkAddReviews(request))
                 .GET("/v1/hello", (request -> ServerResponse.ok().bodyValue("helloworld")))
                 .build()
                 ;
@@ -0,0 +1,68 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.config.MongoDocumentsConfig;
+import com.reactivespring.domain.Review;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataMongoTest
+@ActiveProfiles("test")
+@Import(MongoDocumentsConfig.class)
+class ReviewReactiveRepositoryTest {
+
+    @Autowired
+    ReviewReactiveRepository reviewReactiveRepository;
+
+    @Autowired
+    ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @BeforeEach
+    void setUp() {
+        var reviewsList = List.of(
+                new Review(null, 1L, "Awesome Movie", 9.0),
+                new Review(null, 1L, "Nice Movie", 8.0),
+                new Review(null, 2L, "Excellent Movie", 8.5));
+        reviewReactiveRepository.saveAll(reviewsList)
+                .blockLast();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reviewReactiveRepository.deleteAll().block();
+    }
+
+    @Test
+    void findReviewsByMovieInfoId() {
+        var reviewsFlux = reviewReactiveRepository.findReviewsByMovieInfoId(1L);
+
+        StepVerifier.create(reviewsFlux)
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+
+    @Test
+    void findReviewsByMovieInfoId_usesIndex() {
+        var explainMono = reactiveMongoTemplate.getCollection("review")
+                .flatMap(collection -> Mono.from(collection.find(new Document("movieInfoId", 1L)).explain()));
+
+        StepVerifier.create(explainMono)
+                .assertNext(explain -> {
+                    var winningPlan = explain.get("queryPlanner", Document.class).get("winningPlan", Document.class);
+                    assertTrue(winningPlan.toJson().contains("IXSCAN"), winningPlan.toJson());
+                })
+                .verifyComplete();
+    }
+}
@@ -1,17 +1,29 @@
 package com.reactivespring.routes;
 
+import com.reactivespring.domain.BulkResult;
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewStats;
+import com.reactivespring.domain.ReviewSummary;
 import com.reactivespring.repository.ReviewReactiveRepository;
+import com.reactivespring.repository.ReviewSummaryRepository;
+import com.reactivespring.util.ContinuationToken;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles("test")
@@ -24,6 +36,9 @@ public class ReviewsIntgTest {
     @Autowired
     ReviewReactiveRepository reviewReactiveRepository;
 
+    @Autowired
+    ReviewSummaryRepository reviewSummaryRepository;
+
     static String REVIEWS_URL = "/v1/reviews";
 
     @BeforeEach
@@ -32,14 +47,18 @@ public class ReviewsIntgTest {
         var reviewsList = List.of(
                 new Review(null, 1L, "Awesome Movie", 9.0),
                 new Review(null, 1L, "Awesome Movie1", 9.0),
-                new Review(null, 1L, "Nice Movie", 8.0));
+                new Review(null, 1L, "Nice Movie", 8.0),
+                new Review(null, 2L, "Excellent Movie", 8.5));
         reviewReactiveRepository.saveAll(reviewsList)
                 .blockLast();
+        //the reviews are saved behind the handler's back, so their summaries come from a rebuild
+        reviewSummaryRepository.rebuild().block();
     }
 
     @AfterEach
     void tearDown() {
         reviewReactiveRepository.deleteAll().block();
+        reviewSummaryRepository.rebuild().block();
     }
 
     @Test
@@ -63,5 +82,260 @@ public class ReviewsIntgTest {
                 });
     }
 
+    @Test
+    void batchGetReviews() {
+        //given
+        var movieInfoIds = List.of("1", "2", "3");
+        //when
+        webTestClient
+                .post()
+                .uri(REVIEWS_URL + ":batchGet")
+                .bodyValue(movieInfoIds)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(Review.class)
+                .hasSize(4);
+    }
+
+    @Test
+    void getReviewsPages() {
+        //given
+        var firstPage = webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=1&limit=2")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(Review.class)
+                .hasSize(2)
+                .returnResult();
+        var continuationToken = firstPage.getResponseHeaders().getFirst(ContinuationToken.HEADER);
+        assert continuationToken != null;
+
+        //when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=1&limit=2&after={after}", continuationToken)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .doesNotExist(ContinuationToken.HEADER)
+                .expectBodyList(Review.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void getReviewStats() {
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/stats?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody(ReviewStats.class)
+                .consumeWith(result -> {
+                    var reviewStats = result.getResponseBody();
+                    assert reviewStats != null;
+                    assertEquals(3L, reviewStats.getCount());
+                    assertEquals(26.0 / 3, reviewStats.getMean(), 0.0001);
+                    assertEquals(8.0, reviewStats.getMin());
+                    assertEquals(9.0, reviewStats.getMax());
+                    assertEquals(Map.of("8", 1L, "9", 2L), reviewStats.getHistogram());
+                });
+    }
+
+    @Test
+    void getReviewStats_noReviews() {
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/stats?movieInfoId=3")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.movieInfoId").isEqualTo(3)
+                .jsonPath("$.count").isEqualTo(0);
+    }
+
+    @Test
+    void getReviewStats_multipleMovies() {
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/stats?movieInfoIds=1,2,3")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].movieInfoId").isEqualTo(1)
+                .jsonPath("$[1].movieInfoId").isEqualTo(2)
+                .jsonPath("$[1].count").isEqualTo(1)
+                .jsonPath("$[1].histogram.8").isEqualTo(1);
+    }
+
+    @Test
+    void getReviewSummary_followsAddUpdateAndDelete() {
+        //given
+        var savedReview = webTestClient
+                .post()
+                .uri(REVIEWS_URL)
+                .bodyValue(new Review(null, 1L, "Meh", 6.0))
+                .exchange()
+                .expectStatus()
+                .isCreated()
+                .expectBody(Review.class)
+                .returnResult()
+                .getResponseBody();
+        assert savedReview != null;
+        assertSummary(1L, 4L, 32.0, Map.of("6", 1L, "8", 1L, "9", 2L));
+
+        //when
+        webTestClient
+                .put()
+                .uri(REVIEWS_URL + "/{id}", savedReview.getReviewId())
+                .bodyValue(new Review(null, 1L, "Better on second watch", 8.5))
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful();
+        assertSummary(1L, 4L, 34.5, Map.of("6", 0L, "8", 2L, "9", 2L));
 
+        webTestClient
+                .patch()
+                .uri(REVIEWS_URL + "/{id}", savedReview.getReviewId())
+                .bodyValue(Map.of("comment", "Still good"))
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.rating").isEqualTo(8.5);
+        assertSummary(1L, 4L, 34.5, Map.of("6", 0L, "8", 2L, "9", 2L));
+
+        webTestClient
+                .delete()
+                .uri(REVIEWS_URL + "/{id}", savedReview.getReviewId())
+                .exchange()
+                .expectStatus()
+                .isNoContent();
+        webTestClient
+                .delete()
+                .uri(REVIEWS_URL + "/{id}", savedReview.getReviewId())
+                .exchange()
+                .expectStatus()
+                .isNotFound();
+
+        //then
+        assertSummary(1L, 3L, 26.0, Map.of("6", 0L, "8", 1L, "9", 2L));
+    }
+
+    @Test
+    void rebuildReviewSummaries_dropsMoviesWithoutReviews() {
+        //given
+        reviewReactiveRepository.findReviewsByMovieInfoId(2L)
+                .flatMap(reviewReactiveRepository::delete)
+                .blockLast();
+
+        //when
+        var rebuilt = reviewSummaryRepository.rebuild().block();
+
+        //then
+        assertEquals(1L, rebuilt);
+        assertSummary(1L, 3L, 26.0, Map.of("8", 1L, "9", 2L));
+        assertSummary(2L, 0L, 0.0, Map.of());
+    }
+
+    @Test
+    void bulkAddReviews() {
+        //given
+        var body = String.join("\n",
+                "{\"movieInfoId\":2,\"comment\":\"Good Movie\",\"rating\":7.0}",
+                "{\"movieInfoId\":3,\"comment\":\"Bad Movie\",\"rating\":-1.0}",
+                "{\"reviewId\":\"61a4b1f1c2d3e4f5a6b7c8d9\",\"movieInfoId\":3,\"comment\":\"Nice Movie\",\"rating\":8.0}",
+                "{\"reviewId\":\"61a4b1f1c2d3e4f5a6b7c8d9\",\"movieInfoId\":3,\"comment\":\"Same Movie\",\"rating\":8.0}");
+
+        //when
+        var results = webTestClient
+                .post()
+                .uri(REVIEWS_URL + ":bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(BulkResult.class)
+                .returnResult()
+                .getResponseBody();
+
+        //then
+        assert results != null;
+        assertEquals(List.of(201, 400, 201, 409), results.stream().map(BulkResult::getStatus).collect(Collectors.toList()));
+        assertEquals("rating.negative : please pass a non-negative value", results.get(1).getMessage());
+        assertSummary(2L, 2L, 15.5, Map.of("7", 1L, "8", 1L));
+        assertSummary(3L, 1L, 8.0, Map.of("8", 1L));
+    }
+
+    @Test
+    void updateReview_ifMatch() {
+        //given
+        var etag = webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(Review.class)
+                .getResponseHeaders()
+                .getETag();
+        assert etag != null;
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=1")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus()
+                .isNotModified();
+        var reviewId = reviewReactiveRepository.findReviewsByMovieInfoId(2L).blockFirst().getReviewId();
+
+        //when
+        webTestClient
+                .put()
+                .uri(REVIEWS_URL + "/{id}", reviewId)
+                .header(HttpHeaders.IF_MATCH, "\"" + reviewId + "-5\"")
+                .bodyValue(new Review(null, 2L, "Excellent Movie", 9.5))
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        //then
+        webTestClient
+                .put()
+                .uri(REVIEWS_URL + "/{id}", reviewId)
+                .header(HttpHeaders.IF_MATCH, "\"" + reviewId + "-0\"")
+                .bodyValue(new Review(null, 2L, "Excellent Movie", 9.5))
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"" + reviewId + "-1\"");
+        assertSummary(2L, 1L, 9.5, Map.of("8", 0L, "9", 1L));
+    }
+
+    private void assertSummary(Long movieInfoId, long count, double sum, Map<String, Long> histogram) {
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/summary?movieInfoId={id}", movieInfoId)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody(ReviewSummary.class)
+                .consumeWith(result -> {
+                    var reviewSummary = result.getResponseBody();
+                    assert reviewSummary != null;
+                    assertEquals(count, reviewSummary.getCount());
+                    assertEquals(sum, reviewSummary.getSum(), 0.0001);
+                    assertEquals(histogram, reviewSummary.getHistogram());
+                });
+    }
 }
@@ -0,0 +1,159 @@
+package com.reactivespring.job;
+
+import com.reactivespring.domain.BulkResult;
+import com.reactivespring.domain.Review;
+import com.reactivespring.exception.ReviewQueueFullException;
+import com.reactivespring.repository.ReviewBulkRepository;
+import com.reactivespring.repository.ReviewSummaryRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.util.function.Tuple2;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReviewWriteBehindQueueTest {
+
+    @Mock
+    ReviewBulkRepository reviewBulkRepositoryMock;
+
+    @Mock
+    ReviewSummaryRepository reviewSummaryRepositoryMock;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(reviewBulkRepositoryMock.insertAll(anyList()))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<Tuple2<Long, Review>>>getArgument(0))
+                        .map(record -> BulkResult.of(record.getT1(), record.getT2().getReviewId(), HttpStatus.CREATED)));
+        lenient().when(reviewSummaryRepositoryMock.addAll(any())).thenReturn(Mono.empty());
+    }
+
+    @Test
+    void offer_flushesFullBatch() {
+        //given
+        var queue = queue(10, 2, Duration.ofHours(1));
+
+        //when
+        var first = queue.offer(new Review(null, 1L, "Awesome Movie", 9.0));
+        var second = queue.offer(new Review(null, 1L, "Nice Movie", 8.0));
+
+        //then
+        StepVerifier.create(Mono.zip(first, second))
+                .expectNextCount(1)
+                .verifyComplete();
+        verify(reviewBulkRepositoryMock, times(1)).insertAll(anyList());
+        verify(reviewSummaryRepositoryMock, times(1)).addAll(any());
+    }
+
+    @Test
+    void offer_flushesPartialBatchAfterInterval() {
+        //given
+        var queue = queue(10, 100, Duration.ofMillis(50));
+
+        //when
+        var written = queue.offer(new Review(null, 1L, "Awesome Movie", 9.0));
+
+        //then
+        StepVerifier.create(written)
+                .expectNextMatches(review -> review.getReviewId() != null)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void offer_writesACopyOfTheReview() {
+        //given
+        var queue = queue(10, 1, Duration.ofHours(1));
+        var review = new Review(null, 1L, "Awesome Movie", 9.0);
+
+        //when
+        var written = queue.offer(review);
+
+        //then
+        assertEquals(0L, review.getVersion());
+        StepVerifier.create(written)
+                .expectNextMatches(savedReview -> savedReview != review && savedReview.equals(review))
+                .verifyComplete();
+    }
+
+    @Test
+    void offer_rejectedWhenFull() {
+        //given
+        var queue = queue(1, 100, Duration.ofHours(1));
+        queue.offer(new Review(null, 1L, "Awesome Movie", 9.0));
+
+        //when
+        var ex = assertThrows(ReviewQueueFullException.class,
+                () -> queue.offer(new Review(null, 1L, "Nice Movie", 8.0)));
+
+        //then
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, ex.getStatus());
+        verify(reviewBulkRepositoryMock, never()).insertAll(anyList());
+    }
+
+    @Test
+    void offer_failsWithStatusOfTheWrite() {
+        //given
+        when(reviewBulkRepositoryMock.insertAll(anyList()))
+                .thenReturn(Flux.just(BulkResult.failed(0, "abc", HttpStatus.CONFLICT, "review.reviewId already exists")));
+        var queue = queue(10, 1, Duration.ofHours(1));
+
+        //when
+        var written = queue.offer(new Review("abc", 1L, "Awesome Movie", 9.0));
+
+        //then
+        StepVerifier.create(written)
+                .expectErrorMatches(ex -> ex instanceof ResponseStatusException
+                        && ((ResponseStatusException) ex).getStatus() == HttpStatus.CONFLICT)
+                .verify();
+    }
+
+    @Test
+    void stop_drainsQueueAndRejectsNewReviews() {
+        //given
+        var queue = queue(10, 100, Duration.ofHours(1));
+        var written = queue.offer(new Review(null, 1L, "Awesome Movie", 9.0));
+
+        //when
+        queue.stop();
+
+        //then
+        StepVerifier.create(written)
+                .expectNextCount(1)
+                .verifyComplete();
+        var ex = assertThrows(ReviewQueueFullException.class,
+                () -> queue.offer(new Review(null, 1L, "Nice Movie", 8.0)));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ex.getStatus());
+    }
+
+    @SuppressWarnings("unchecked")
+    private ReviewWriteBehindQueue queue(int queueCapacity, int batchSize, Duration flushInterval) {
+        var queue = new ReviewWriteBehindQueue(reviewBulkRepositoryMock, reviewSummaryRepositoryMock,
+                mock(ObjectProvider.class), true, ReviewWriteBehindQueue.AckMode.PERSISTED,
+                queueCapacity, batchSize, flushInterval, Duration.ofSeconds(5));
+        queue.start();
+        return queue;
+    }
+}
@@ -1,4 +1,551 @@
 package com.reactivespring.routes;
 
+import com.reactivespring.config.CodecConfig;
+import com.reactivespring.domain.BulkResult;
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewStats;
+import com.reactivespring.domain.ReviewSummary;
+import com.reactivespring.exception.ReviewQueueFullException;
+import com.reactivespring.handler.ReviewHandler;
+import com.reactivespring.job.ReviewWriteBehindQueue;
+import com.reactivespring.repository.ReviewBulkRepository;
+import com.reactivespring.repository.ReviewReactiveRepository;
+import com.reactivespring.repository.ReviewStatsRepository;
+import com.reactivespring.repository.ReviewSummaryRepository;
+import com.reactivespring.repository.ReviewWriteRepository;
+import com.reactivespring.router.ReviewRouter;
+import com.reactivespring.util.ContinuationToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest
+@ContextConfiguration(classes = {ReviewRouter.class, ReviewHandler.class, CodecConfig.class})
+@AutoConfigureWebTestClient
 public class ReviewsUnitTest {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @MockBean
+    ReviewReactiveRepository reviewReactiveRepositoryMock;
+
+    @MockBean
+    ReviewStatsRepository reviewStatsRepositoryMock;
+
+    @MockBean
+    ReviewSummaryRepository reviewSummaryRepositoryMock;
+
+    @MockBean
+    ReviewBulkRepository reviewBulkRepositoryMock;
+
+    @MockBean
+    ReviewWriteRepository reviewWriteRepositoryMock;
+
+    @MockBean
+    ReviewWriteBehindQueue reviewWriteBehindQueueMock;
+
+    static String REVIEWS_URL = "/v1/reviews";
+
+    @BeforeEach
+    void setUp() {
+        when(reviewSummaryRepositoryMock.add(any(), any())).thenReturn(Mono.empty());
+        when(reviewSummaryRepositoryMock.replace(any(), any(), any())).thenReturn(Mono.empty());
+        when(reviewSummaryRepositoryMock.remove(any(), any())).thenReturn(Mono.empty());
+        when(reviewSummaryRepositoryMock.addAll(any())).thenReturn(Mono.empty());
+    }
+
+    @Test
+    void addReview() {
+        //given
+        var review = new Review(null, 1L, "Awesome Movie", 9.0);
+        when(reviewReactiveRepositoryMock.save(isA(Review.class)))
+                .thenReturn(Mono.just(new Review("abc", 1L, "Awesome Movie", 9.0)));
+
+        //when
+        webTestClient
+                .post()
+                .uri(REVIEWS_URL)
+                .bodyValue(review)
+                .exchange()
+                .expectStatus()
+                .isCreated()
+                .expectBody(Review.class)
+                .consumeWith(reviewEntityExchangeResult -> {
+                    var savedReview = reviewEntityExchangeResult.getResponseBody();
+                    assert savedReview != null;
+                    assert savedReview.getReviewId() != null;
+                });
+        verify(reviewSummaryRepositoryMock).add(1L, 9.0);
+    }
+
+    @Test
+    void getReviewsStream() {
+        //given
+        when(reviewReactiveRepositoryMock.save(isA(Review.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0, Review.class)));
+
+        var reviewsStream = webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/stream?movieInfoId=1")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .returnResult(Review.class)
+                .getResponseBody();
+
+        //when
+        StepVerifier.create(reviewsStream)
+                .then(() -> {
+                    postReview(new Review("1", 2L, "Other Movie", 7.0));
+                    postReview(new Review("2", 1L, "Awesome Movie", 9.0));
+                })
+                //then - only the review of the requested movie is pushed
+                .expectNextMatches(review -> review.getReviewId().equals("2"))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void getReviewsStream_invalidMovieInfoId() {
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/stream?movieInfoId=abc")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void getReviewsPage() {
+        //given
+        var reviews = List.of(new Review("1", 1L, "Awesome Movie", 9.0),
+                new Review("2", 1L, "Excellent Movie", 8.0));
+        when(reviewReactiveRepositoryMock.findReviewsByMovieInfoIdAndStringReviewIdGreaterThan(eq(1L), eq("0"), isA(Pageable.class)))
+                .thenReturn(Flux.fromIterable(reviews));
+
+        //when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=1&limit=2&after={after}", ContinuationToken.encode("0"))
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .valueEquals(ContinuationToken.HEADER, ContinuationToken.encode("2"))
+                .expectBodyList(Review.class)
+                .hasSize(2);
+    }
+
+    @Test
+    void getReviewsPage_invalidToken() {
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?limit=2&after=not-a-token")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void getReviewsPage_invalidMovieInfoId() {
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=abc&limit=10")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void getReviews_smile() {
+        //given
+        var reviews = List.of(new Review("1", 1L, "Awesome Movie", 9.0),
+                new Review("2", 1L, "Excellent Movie", 8.0));
+        when(reviewReactiveRepositoryMock.findReviewsByMovieInfoId(1L)).thenReturn(Flux.fromIterable(reviews));
+
+        //when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=1")
+                .accept(CodecConfig.APPLICATION_SMILE, MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .contentType(CodecConfig.APPLICATION_SMILE)
+                .expectHeader()
+                .valueMatches(HttpHeaders.ETAG, "\"[0-9a-f]{32}-smile\"")
+                .expectHeader()
+                .valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .expectBodyList(Review.class)
+                .isEqualTo(reviews);
+    }
+
+    @Test
+    void getReviews_json() {
+        //given
+        when(reviewReactiveRepositoryMock.findAll()).thenReturn(Flux.just(new Review("1", 1L, "Awesome Movie", 9.0)));
+
+        //when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .contentType(MediaType.APPLICATION_JSON)
+                .expectBodyList(Review.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void getReviews_notModified() {
+        //given
+        when(reviewReactiveRepositoryMock.findReviewsByMovieInfoId(1L))
+                .thenReturn(Flux.just(new Review("1", 1L, "Awesome Movie", 9.0, 0L)));
+        var etag = webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(Review.class)
+                .getResponseHeaders()
+                .getETag();
+
+        //when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=1")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectBody()
+                .isEmpty();
+
+        //then - a saved review changes the ETag
+        when(reviewReactiveRepositoryMock.findReviewsByMovieInfoId(1L))
+                .thenReturn(Flux.just(new Review("1", 1L, "Awesome Movie", 8.0, 1L)));
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=1")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(Review.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void getReviewStats() {
+        //given
+        when(reviewStatsRepositoryMock.findStatsByMovieInfoIds(List.of(1L)))
+                .thenReturn(Flux.just(new ReviewStats(1L, 2L, 8.5, 8.0, 9.0, Map.of("8", 1L, "9", 1L))));
+
+        //when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/stats?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(2)
+                .jsonPath("$.mean").isEqualTo(8.5)
+                .jsonPath("$.histogram.9").isEqualTo(1);
+    }
+
+    @Test
+    void getReviewStats_multipleMovies() {
+        //given
+        when(reviewStatsRepositoryMock.findStatsByMovieInfoIds(Set.of(1L, 2L)))
+                .thenReturn(Flux.just(new ReviewStats(1L, 1L, 9.0, 9.0, 9.0, Map.of("9", 1L)),
+                        new ReviewStats(2L, 1L, 7.0, 7.0, 7.0, Map.of("7", 1L))));
+
+        //when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/stats?movieInfoIds=1,2")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(ReviewStats.class)
+                .hasSize(2);
+    }
+
+    @Test
+    void getReviewStats_invalidMovieInfoId() {
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/stats?movieInfoId=abc")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void getReviewSummary() {
+        //given
+        when(reviewSummaryRepositoryMock.findById(1L))
+                .thenReturn(Mono.just(new ReviewSummary(1L, 2L, 17.0, 145.0, Map.of("8", 1L, "9", 1L), null)));
+
+        //when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/summary?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(2)
+                .jsonPath("$.mean").isEqualTo(8.5)
+                .jsonPath("$.standardDeviation").isEqualTo(0.5);
+    }
+
+    @Test
+    void updateReview() {
+        //given
+        when(reviewWriteRepositoryMock.findAndSet(eq("abc"), isNull(), any()))
+                .thenReturn(Mono.just(new Review("abc", 1L, "Awesome Movie", 9.0, 3L)));
+
+        //when
+        webTestClient
+                .put()
+                .uri(REVIEWS_URL + "/{id}", "abc")
+                .bodyValue(new Review(null, 1L, "Not that good", 6.5))
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"abc-4\"");
+
+        //then - a single findAndModify, and only the rating delta is applied to the summary
+        verify(reviewWriteRepositoryMock).findAndSet("abc", null, Map.of("comment", "Not that good", "rating", 6.5));
+        verify(reviewReactiveRepositoryMock, never()).save(isA(Review.class));
+        verify(reviewSummaryRepositoryMock).replace(1L, 9.0, 6.5);
+    }
+
+    @Test
+    void updateReview_notFound() {
+        //given
+        when(reviewWriteRepositoryMock.findAndSet(eq("abc"), isNull(), any())).thenReturn(Mono.empty());
+
+        //when
+        webTestClient
+                .put()
+                .uri(REVIEWS_URL + "/{id}", "abc")
+                .bodyValue(new Review(null, 1L, "Not that good", 6.5))
+                .exchange()
+                .expectStatus()
+                .isNotFound();
+
+        //then
+        verify(reviewSummaryRepositoryMock, never()).replace(any(), any(), any());
+    }
+
+    @Test
+    void updateReview_staleIfMatch() {
+        //given
+        when(reviewWriteRepositoryMock.findAndSet(eq("abc"), eq(2L), any()))
+                .thenReturn(Mono.error(new OptimisticLockingFailureException("review abc is not at version 2")));
+
+        //when
+        webTestClient
+                .put()
+                .uri(REVIEWS_URL + "/{id}", "abc")
+                .header(HttpHeaders.IF_MATCH, "\"abc-2\"")
+                .bodyValue(new Review(null, 1L, "Not that good", 6.5))
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        //then
+        verify(reviewSummaryRepositoryMock, never()).replace(any(), any(), any());
+    }
+
+    @Test
+    void patchReview() {
+        //given
+        when(reviewWriteRepositoryMock.findAndSet(eq("abc"), eq(3L), any()))
+                .thenReturn(Mono.just(new Review("abc", 1L, "Awesome Movie", 9.0, 3L)));
+
+        //when
+        webTestClient
+                .patch()
+                .uri(REVIEWS_URL + "/{id}", "abc")
+                .header(HttpHeaders.IF_MATCH, "\"abc-3\"")
+                .bodyValue(Map.of("rating", 8.0))
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"abc-4\"")
+                .expectBody()
+                .jsonPath("$.comment").isEqualTo("Awesome Movie")
+                .jsonPath("$.rating").isEqualTo(8.0);
+
+        //then - the comment is left as stored
+        verify(reviewWriteRepositoryMock).findAndSet("abc", 3L, Map.of("rating", 8.0));
+        verify(reviewSummaryRepositoryMock).replace(1L, 9.0, 8.0);
+    }
+
+    @Test
+    void deleteReview() {
+        //given
+        when(reviewWriteRepositoryMock.findAndRemove("abc"))
+                .thenReturn(Mono.just(new Review("abc", 1L, "Awesome Movie", 9.0)));
+
+        //when
+        webTestClient
+                .delete()
+                .uri(REVIEWS_URL + "/{id}", "abc")
+                .exchange()
+                .expectStatus()
+                .isNoContent();
+
+        //then
+        verify(reviewReactiveRepositoryMock, never()).findById(isA(String.class));
+        verify(reviewSummaryRepositoryMock).remove(1L, 9.0);
+    }
+
+    @Test
+    void deleteReview_alreadyDeleted() {
+        //given
+        when(reviewWriteRepositoryMock.findAndRemove("abc")).thenReturn(Mono.empty());
+
+        //when
+        webTestClient
+                .delete()
+                .uri(REVIEWS_URL + "/{id}", "abc")
+                .exchange()
+                .expectStatus()
+                .isNotFound();
+
+        //then - a concurrent delete already took the review out of the summary
+        verify(reviewSummaryRepositoryMock, never()).remove(anyLong(), anyDouble());
+    }
+
+    @Test
+    void bulkAddReviews() {
+        //given
+        when(reviewBulkRepositoryMock.insertAll(anyList()))
+                .thenReturn(Flux.just(BulkResult.of(0, "abc", HttpStatus.CREATED),
+                        BulkResult.failed(2, "def", HttpStatus.CONFLICT, "review.reviewId already exists")));
+        var body = "{\"reviewId\":\"abc\",\"movieInfoId\":1,\"comment\":\"Awesome Movie\",\"rating\":9.0}\n"
+                + "{\"comment\":\"No Movie\",\"rating\":9.0}\n"
+                + "{\"reviewId\":\"def\",\"movieInfoId\":1,\"comment\":\"Nice Movie\",\"rating\":8.0}\n";
+
+        //when
+        var results = webTestClient
+                .post()
+                .uri(REVIEWS_URL + ":bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(BulkResult.class)
+                .getResponseBody();
+
+        //then
+        StepVerifier.create(results)
+                .expectNext(BulkResult.of(0, "abc", HttpStatus.CREATED))
+                .expectNext(BulkResult.failed(1, null, HttpStatus.BAD_REQUEST, "review.movieInfoId : must not be null"))
+                .expectNext(BulkResult.failed(2, "def", HttpStatus.CONFLICT, "review.reviewId already exists"))
+                .verifyComplete();
+        verify(reviewSummaryRepositoryMock).addAll(List.of(new Review("abc", 1L, "Awesome Movie", 9.0)));
+    }
+
+    @Test
+    void addReview_writeBehindAccepted() {
+        //given
+        var review = new Review(null, 1L, "Awesome Movie", 9.0);
+        when(reviewWriteBehindQueueMock.isEnabled()).thenReturn(true);
+        when(reviewWriteBehindQueueMock.getAckMode()).thenReturn(ReviewWriteBehindQueue.AckMode.ACCEPTED);
+        when(reviewWriteBehindQueueMock.offer(isA(Review.class))).thenAnswer(invocation -> {
+            var queued = invocation.<Review>getArgument(0);
+            queued.setReviewId("abc");
+            queued.setVersion(0L);
+            return Mono.never();
+        });
+
+        //when
+        webTestClient
+                .post()
+                .uri(REVIEWS_URL)
+                .bodyValue(review)
+                .exchange()
+                .expectStatus()
+                .isAccepted()
+                .expectBody(Review.class)
+                .isEqualTo(new Review("abc", 1L, "Awesome Movie", 9.0, 0L));
+
+        //then
+        verify(reviewReactiveRepositoryMock, never()).save(any());
+    }
+
+    @Test
+    void addReview_writeBehindQueueFull() {
+        //given
+        when(reviewWriteBehindQueueMock.isEnabled()).thenReturn(true);
+        when(reviewWriteBehindQueueMock.offer(isA(Review.class)))
+                .thenThrow(new ReviewQueueFullException("Review queue is full", HttpStatus.TOO_MANY_REQUESTS, Duration.ofSeconds(1)));
+
+        //when
+        webTestClient
+                .post()
+                .uri(REVIEWS_URL)
+                .bodyValue(new Review(null, 1L, "Awesome Movie", 9.0))
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.TOO_MANY_REQUESTS)
+                .expectHeader()
+                .valueEquals("Retry-After", "1");
+    }
+
+    private void postReview(Review review) {
+        webTestClient
+                .post()
+                .uri(REVIEWS_URL)
+                .bodyValue(review)
+                .exchange()
+                .expectStatus()
+                .isCreated();
+    }
 }
@@ -0,0 +1,155 @@
+package com.reactivespring.client;
+
+import com.reactivespring.config.RestClientProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Sends the same request a second time when the first one hasn't answered within the hedge delay,
+ * keeps the first value and cancels the other request. Only for idempotent calls.
+ * The delay follows a percentile of the recent latencies of the first requests,
+ * and a token bucket keeps the hedges under budget-percent of the calls.
+ */
+public class HedgingPolicy {
+
+    //a hedge costs TOKENS_PER_HEDGE, every call deposits budget-percent of it
+    private static final long TOKENS_PER_HEDGE = 1_000;
+    //unused budget is kept for bursts of slow calls, up to this many hedges
+    private static final long MAX_SAVED_HEDGES = 10;
+
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayMicros;
+    private final long maxDelayMicros;
+    private final long minSamples;
+    private final long refreshIntervalNanos;
+    private final long tokensPerCall;
+    private final Recorder latencies = new Recorder(TimeUnit.MINUTES.toMicros(1), 2);
+    //latencies since the last delay update, which needs at least minSamples of them
+    private final Histogram window = new Histogram(TimeUnit.MINUTES.toMicros(1), 2);
+    private final AtomicLong tokens = new AtomicLong();
+    private final AtomicLong nextRefreshNanos;
+    private final Counter sent;
+    private final Counter skipped;
+    private final Counter won;
+    private Histogram intervalHistogram;
+    private volatile long delayMicros;
+
+    public HedgingPolicy(String name, RestClientProperties.Hedge hedge, MeterRegistry meterRegistry) {
+        this.enabled = hedge.isEnabled();
+        this.percentile = hedge.getPercentile();
+        this.minDelayMicros = TimeUnit.NANOSECONDS.toMicros(hedge.getMinDelay().toNanos());
+        this.maxDelayMicros = TimeUnit.NANOSECONDS.toMicros(hedge.getMaxDelay().toNanos());
+        this.minSamples = hedge.getMinSamples();
+        this.refreshIntervalNanos = hedge.getRefreshInterval().toNanos();
+        this.tokensPerCall = Math.round(hedge.getBudgetPercent() * TOKENS_PER_HEDGE / 100);
+        //until enough latencies are known, only the calls slower than max-delay are hedged
+        this.delayMicros = maxDelayMicros;
+        this.nextRefreshNanos = new AtomicLong(System.nanoTime() + refreshIntervalNanos);
+
+        sent = hedges(meterRegistry, name, "sent");
+        skipped = hedges(meterRegistry, name, "budget_exhausted");
+        won = hedges(meterRegistry, name, "won");
+        Gauge.builder("http.client.hedge.delay", this, policy -> policy.delayMicros / 1e6)
+                .tag("client", name)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    private static Counter hedges(MeterRegistry meterRegistry, String name, String outcome) {
+        return Counter.builder("http.client.hedges")
+                .tag("client", name)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    public <T> Mono<T> apply(Supplier<Mono<T>> call) {
+        if(!enabled) {
+            return Mono.defer(call);
+        }
+        return Mono.defer(() -> {
+            deposit();
+            refreshDelay();
+            var startNanos = System.nanoTime();
+            var primaryTerminated = Sinks.empty();
+
+            var primary = Mono.defer(call)
+                    .doOnSuccess(value -> record(startNanos))
+                    //cancelled because the hedge answered first, it was at least that slow
+                    .doOnCancel(() -> record(startNanos))
+                    .doFinally(signalType -> primaryTerminated.tryEmitEmpty());
+            //no hedge once the first request has failed, its error is returned right away
+            var hedge = Mono.delay(Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(delayMicros)))
+                    .takeUntilOther(primaryTerminated.asMono())
+                    .filter(tick -> withdraw())
+                    .flatMap(tick -> Mono.defer(call).doOnNext(value -> won.increment()));
+
+            return Mono.firstWithValue(primary, hedge)
+                    .onErrorResume(NoSuchElementException.class, HedgingPolicy::firstError);
+        });
+    }
+
+    //firstWithValue fails with a NoSuchElementException holding the failure, or the empty completion, of each request
+    private static <T> Mono<T> firstError(NoSuchElementException ex) {
+        for(var error : Exceptions.unwrapMultiple(ex.getCause())) {
+            if(!(error instanceof NoSuchElementException)) {
+                return Mono.error(error);
+            }
+        }
+        return Mono.empty();
+    }
+
+    private void deposit() {
+        tokens.getAndUpdate(current -> Math.min(current + tokensPerCall, MAX_SAVED_HEDGES * TOKENS_PER_HEDGE));
+    }
+
+    private boolean withdraw() {
+        var current = tokens.get();
+        while(current >= TOKENS_PER_HEDGE) {
+            if(tokens.compareAndSet(current, current - TOKENS_PER_HEDGE)) {
+                sent.increment();
+                return true;
+            }
+            current = tokens.get();
+        }
+        skipped.increment();
+        return false;
+    }
+
+    private void record(long startNanos) {
+        latencies.recordValue(Math.min(TimeUnit.MINUTES.toMicros(1), TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos)));
+    }
+
+    //done by the first call after each refresh interval, quiet intervals add up until there are enough latencies
+    private void refreshDelay() {
+        var next = nextRefreshNanos.get();
+        var now = System.nanoTime();
+        if(now < next || !nextRefreshNanos.compareAndSet(next, now + refreshIntervalNanos)) {
+            return;
+        }
+        synchronized (latencies) {
+            intervalHistogram = latencies.getIntervalHistogram(intervalHistogram);
+            window.add(intervalHistogram);
+            if(window.getTotalCount() >= minSamples) {
+                delayMicros = Math.max(minDelayMicros, Math.min(maxDelayMicros, window.getValueAtPercentile(percentile)));
+                window.reset();
+            }
+        }
+    }
+
+    long delayMicros() {
+        return delayMicros;
+    }
+}
@@ -0,0 +1,54 @@
+package com.reactivespring.client;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.RetryBackoffSpec;
+
+import java.util.function.Function;
+
+/**
+ * Applies the circuit breaker and the retries of a backend to the calls made to it.
+ * Every attempt goes through the circuit breaker, so an open circuit also stops the retries.
+ */
+public class ResiliencePolicy {
+
+    private final CircuitBreaker circuitBreaker;
+    private final RetryBackoffSpec retry;
+    private final Function<Throwable, RuntimeException> serverException;
+
+    /**
+     * @param serverExceptionType only these failures are retried and counted by the circuit breaker
+     * @param serverException     turns connect errors and timeouts into a serverExceptionType
+     */
+    public ResiliencePolicy(CircuitBreaker circuitBreaker, RetryBackoffSpec retry,
+                            Class<? extends RuntimeException> serverExceptionType,
+                            Function<Throwable, RuntimeException> serverException) {
+        this.circuitBreaker = circuitBreaker;
+        this.retry = retry.filter(serverExceptionType::isInstance)
+                //callers see the last failure, not a RetryExhaustedException
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+        this.serverException = serverException;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public <T> Mono<T> apply(Mono<T> call) {
+        return call
+                .onErrorMap(WebClientRequestException.class, serverException)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .retryWhen(retry);
+    }
+
+    //backends answer 5xx before any element, a retried Flux doesn't emit the same elements twice
+    public <T> Flux<T> apply(Flux<T> call) {
+        return call
+                .onErrorMap(WebClientRequestException.class, serverException)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .retryWhen(retry);
+    }
+}
@@ -0,0 +1,98 @@
+package com.reactivespring.client;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.exception.ReviewsClientException;
+import com.reactivespring.exception.ReviewsServerException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+@Component
+@Slf4j
+public class ReviewsRestClient {
+
+    private final WebClient webClient;
+    private final ResiliencePolicy resiliencePolicy;
+
+    @Value("${restClient.reviewsUrl}")
+    private String reviewsUrl;
+
+    public ReviewsRestClient(@Qualifier("reviewsWebClient") WebClient webClient,
+                             @Qualifier("reviewsResiliencePolicy") ResiliencePolicy resiliencePolicy) {
+        this.webClient = webClient;
+        this.resiliencePolicy = resiliencePolicy;
+    }
+
+    public Flux<Review> retrieveReviews(String movieId) {
+        var url = UriComponentsBuilder.fromHttpUrl(reviewsUrl)
+                .queryParam("movieInfoId", movieId)
+                .buildAndExpand().toUriString();
+
+        return resiliencePolicy.apply(webClient
+                .get()
+                .uri(url)
+                .exchangeToFlux(clientResponse -> {
+                    var statusCode = clientResponse.statusCode();
+                    if (statusCode.equals(HttpStatus.NOT_FOUND)) {
+                        //a movie without reviews is not an error for the caller
+                        return clientResponse.releaseBody().thenMany(Flux.empty());
+                    }
+                    if (statusCode.is4xxClientError()) {
+                        log.info("Status code is : {}", statusCode.value());
+                        return clientResponse.bodyToMono(String.class)
+                                .defaultIfEmpty(statusCode.getReasonPhrase())
+                                .flatMapMany(responseMessage -> Flux.error(new ReviewsClientException(responseMessage)));
+                    }
+                    if (statusCode.is5xxServerError()) {
+                        log.info("Status code is : {}", statusCode.value());
+                        return clientResponse.bodyToMono(String.class)
+                                .defaultIfEmpty(statusCode.getReasonPhrase())
+                                .flatMapMany(responseMessage -> Flux.error(new ReviewsServerException(
+                                        "Server Exception in ReviewsService " + responseMessage)));
+                    }
+                    return clientResponse.bodyToFlux(Review.class);
+                }))
+                .onErrorResume(CallNotPermittedException.class, this::withoutReviews);
+    }
+
+    public Flux<Review> retrieveReviews(List<String> movieIds) {
+        var url = reviewsUrl.concat(":batchGet");
+
+        return resiliencePolicy.apply(webClient
+                .post()
+                .uri(url)
+                .bodyValue(movieIds)
+                .exchangeToFlux(clientResponse -> {
+                    var statusCode = clientResponse.statusCode();
+                    if (statusCode.is4xxClientError()) {
+                        log.info("Status code is : {}", statusCode.value());
+                        return clientResponse.bodyToMono(String.class)
+                                .defaultIfEmpty(statusCode.getReasonPhrase())
+                                .flatMapMany(responseMessage -> Flux.error(new ReviewsClientException(responseMessage)));
+                    }
+                    if (statusCode.is5xxServerError()) {
+                        log.info("Status code is : {}", statusCode.value());
+                        return clientResponse.bodyToMono(String.class)
+                                .defaultIfEmpty(statusCode.getReasonPhrase())
+                                .flatMapMany(responseMessage -> Flux.error(new ReviewsServerException(
+                                        "Server Exception in ReviewsService " + responseMessage)));
+                    }
+                    return clientResponse.bodyToFlux(Review.class);
+                }))
+                .onErrorResume(CallNotPermittedException.class, this::withoutReviews);
+    }
+
+    //while the reviews service is failing, movies are served without their reviews instead of not at all
+    private Flux<Review> withoutReviews(CallNotPermittedException ex) {
+        log.warn("Reviews circuit breaker is open, serving movies without reviews");
+        return Flux.empty();
+    }
+}
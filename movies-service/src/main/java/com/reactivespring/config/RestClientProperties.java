@@ -0,0 +1,65 @@
+package com.reactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+//connection pool, timeouts, retry, circuit breaker and hedging of each backend, under restClient.moviesInfo and restClient.reviews
+@Data
+@ConfigurationProperties(prefix = "restclient")
+public class RestClientProperties {
+
+    private Backend moviesInfo = new Backend();
+    private Backend reviews = new Backend();
+
+    @Data
+    public static class Backend {
+
+        private Duration connectTimeout = Duration.ofSeconds(1);
+        //time allowed between the request being sent and the response headers, and between two reads of the body
+        private Duration responseTimeout = Duration.ofSeconds(2);
+        private int maxConnections = 50;
+        //callers waiting for a connection beyond this fail right away instead of queueing
+        private int pendingAcquireMaxCount = 100;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(1);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Retry retry = new Retry();
+        private CircuitBreaker circuitBreaker = new CircuitBreaker();
+        private Hedge hedge = new Hedge();
+    }
+
+    @Data
+    public static class Retry {
+
+        //retries after the first call
+        private int maxRetries = 2;
+        private Duration minBackoff = Duration.ofMillis(100);
+        private Duration maxBackoff = Duration.ofSeconds(1);
+        private double jitter = 0.5;
+    }
+
+    @Data
+    public static class CircuitBreaker {
+
+        private float failureRateThreshold = 50;
+        private int slidingWindowSize = 20;
+        private int minimumNumberOfCalls = 10;
+        private Duration waitDurationInOpenState = Duration.ofSeconds(10);
+        private int permittedNumberOfCallsInHalfOpenState = 3;
+    }
+
+    @Data
+    public static class Hedge {
+
+        private boolean enabled = false;
+        //the second request is sent once the first one is slower than this percentile of the recent latencies
+        private double percentile = 95.0;
+        private Duration minDelay = Duration.ofMillis(10);
+        private Duration maxDelay = Duration.ofMillis(500);
+        //at most this share of the calls is hedged
+        private double budgetPercent = 5.0;
+        private long minSamples = 100;
+        private Duration refreshInterval = Duration.ofSeconds(1);
+    }
+}
@@ -0,0 +1,113 @@
+package com.reactivespring.config;
+
+import com.reactivespring.client.HedgingPolicy;
+import com.reactivespring.client.ResiliencePolicy;
+import com.reactivespring.exception.MoviesInfoServerException;
+import com.reactivespring.exception.ReviewsServerException;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.netty.channel.ChannelOption;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
+
+//one connection pool per backend, a slow reviews service can only exhaust its own connections
+@Configuration
+@EnableConfigurationProperties(RestClientProperties.class)
+public class WebClientConfig {
+
+    @Bean
+    public WebClient moviesInfoWebClient(WebClient.Builder builder, RestClientProperties restClientProperties) {
+        return webClient(builder, "moviesInfo", restClientProperties.getMoviesInfo());
+    }
+
+    @Bean
+    public WebClient reviewsWebClient(WebClient.Builder builder, RestClientProperties restClientProperties) {
+        return webClient(builder, "reviews", restClientProperties.getReviews());
+    }
+
+    @Bean
+    public CircuitBreakerRegistry circuitBreakerRegistry() {
+        return CircuitBreakerRegistry.ofDefaults();
+    }
+
+    @Bean
+    public ResiliencePolicy moviesInfoResiliencePolicy(CircuitBreakerRegistry circuitBreakerRegistry, RestClientProperties restClientProperties) {
+        var backend = restClientProperties.getMoviesInfo();
+        return new ResiliencePolicy(
+                circuitBreakerRegistry.circuitBreaker("moviesInfo", circuitBreakerConfig(backend.getCircuitBreaker(), MoviesInfoServerException.class)),
+                retry(backend.getRetry()),
+                MoviesInfoServerException.class,
+                ex -> new MoviesInfoServerException("Server Exception in MoviesInfoService " + ex.getMessage()));
+    }
+
+    @Bean
+    public ResiliencePolicy reviewsResiliencePolicy(CircuitBreakerRegistry circuitBreakerRegistry, RestClientProperties restClientProperties) {
+        var backend = restClientProperties.getReviews();
+        return new ResiliencePolicy(
+                circuitBreakerRegistry.circuitBreaker("reviews", circuitBreakerConfig(backend.getCircuitBreaker(), ReviewsServerException.class)),
+                retry(backend.getRetry()),
+                ReviewsServerException.class,
+                ex -> new ReviewsServerException("Server Exception in ReviewsService " + ex.getMessage()));
+    }
+
+    @Bean
+    public HedgingPolicy moviesInfoHedgingPolicy(RestClientProperties restClientProperties, MeterRegistry meterRegistry) {
+        return new HedgingPolicy("moviesInfo", restClientProperties.getMoviesInfo().getHedge(), meterRegistry);
+    }
+
+    //resilience4j_circuitbreaker_state, _calls and _failure_rate tagged by backend name
+    @Bean
+    public MeterBinder circuitBreakerMetrics(CircuitBreakerRegistry circuitBreakerRegistry) {
+        return TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry);
+    }
+
+    private static WebClient webClient(WebClient.Builder builder, String name, RestClientProperties.Backend backend) {
+        //metrics(true) publishes reactor.netty.connection.provider.* (active, idle, pending) per pool to the global registry
+        var connectionProvider = ConnectionProvider.builder(name)
+                .maxConnections(backend.getMaxConnections())
+                .pendingAcquireMaxCount(backend.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(backend.getPendingAcquireTimeout())
+                .maxIdleTime(backend.getMaxIdleTime())
+                .metrics(true)
+                .build();
+        var httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) backend.getConnectTimeout().toMillis())
+                .responseTimeout(backend.getResponseTimeout());
+        return builder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                //Smile is smaller and cheaper to parse, a backend without it still answers JSON
+                .defaultHeader(HttpHeaders.ACCEPT, CodecConfig.APPLICATION_SMILE.toString(), MediaType.APPLICATION_JSON_VALUE)
+                .build();
+    }
+
+    private static CircuitBreakerConfig circuitBreakerConfig(RestClientProperties.CircuitBreaker circuitBreaker,
+                                                             Class<? extends RuntimeException> serverExceptionType) {
+        return CircuitBreakerConfig.custom()
+                .failureRateThreshold(circuitBreaker.getFailureRateThreshold())
+                .slidingWindowSize(circuitBreaker.getSlidingWindowSize())
+                .minimumNumberOfCalls(circuitBreaker.getMinimumNumberOfCalls())
+                .waitDurationInOpenState(circuitBreaker.getWaitDurationInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(circuitBreaker.getPermittedNumberOfCallsInHalfOpenState())
+                //4xx answers are the caller's problem, they don't open the circuit
+                .recordException(serverExceptionType::isInstance)
+                .build();
+    }
+
+    private static RetryBackoffSpec retry(RestClientProperties.Retry retry) {
+        return Retry.backoff(retry.getMaxRetries(), retry.getMinBackoff())
+                .maxBackoff(retry.getMaxBackoff())
+                .jitter(retry.getJitter());
+    }
+}
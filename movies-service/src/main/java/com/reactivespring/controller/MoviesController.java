@@ -0,0 +1,50 @@
+package com.reactivespring.controller;
+
+import com.reactivespring.client.MoviesInfoRestClient;
+import com.reactivespring.client.ReviewsRestClient;
+import com.reactivespring.domain.Movie;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+@RequestMapping("/v1")
+public class MoviesController {
+
+    private final MoviesInfoRestClient moviesInfoRestClient;
+    private final ReviewsRestClient reviewsRestClient;
+
+    public MoviesController(MoviesInfoRestClient moviesInfoRestClient, ReviewsRestClient reviewsRestClient) {
+        this.moviesInfoRestClient = moviesInfoRestClient;
+        this.reviewsRestClient = reviewsRestClient;
+    }
+
+    @GetMapping("/movies/{id}")
+    public Mono<Movie> retrieveMovieById(@PathVariable("id") String movieId) {
+        //both calls are subscribed at the same time, so the latency is max(info, reviews) and not the sum
+        var movieInfoMono = moviesInfoRestClient.retrieveMovieInfo(movieId);
+        var reviewsListMono = reviewsRestClient.retrieveReviews(movieId).collectList();
+
+        return Mono.zip(movieInfoMono, reviewsListMono, Movie::new);
+    }
+
+    @PostMapping(value = "/movies:batchGet", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<Movie> retrieveMoviesByIds(@RequestBody List<String> movieIds) {
+        if (movieIds.isEmpty()) {
+            return Flux.empty();
+        }
+        //one request per backend for the whole batch, reviews are grouped by movie once they are all in
+        var reviewsByMovieInfoId = reviewsRestClient.retrieveReviews(movieIds)
+                .collectMultimap(review -> String.valueOf(review.getMovieInfoId()))
+                .cache();
+
+        //zipWith subscribes to both sides at once, every MovieInfo is emitted as soon as the reviews are grouped
+        return moviesInfoRestClient.retrieveMovieInfos(movieIds)
+                .zipWith(reviewsByMovieInfoId.repeat(), (movieInfo, reviews) ->
+                        new Movie(movieInfo, new ArrayList<>(reviews.getOrDefault(movieInfo.getMovieInfoId(), List.of()))));
+    }
+}
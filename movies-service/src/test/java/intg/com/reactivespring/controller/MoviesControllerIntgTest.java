@@ -1,4 +1,331 @@
 package com.reactivespring.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.reactivespring.client.ResiliencePolicy;
+import com.reactivespring.config.CodecConfig;
+import com.reactivespring.domain.Movie;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 8084)
+@AutoConfigureMetrics
+@TestPropertySource(
+        properties = {
+                "restClient.moviesInfoUrl=http://localhost:8084/v1/movieinfos",
+                "restClient.reviewsUrl=http://localhost:8084/v1/reviews",
+                //the 5XX tests must not open the circuits for the tests that follow
+                "restClient.moviesInfo.circuit-breaker.minimum-number-of-calls=1000",
+                "restClient.reviews.circuit-breaker.minimum-number-of-calls=1000"
+        }
+)
 public class MoviesControllerIntgTest {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    @Qualifier("moviesInfoResiliencePolicy")
+    ResiliencePolicy moviesInfoResiliencePolicy;
+
+    @Autowired
+    @Qualifier("reviewsResiliencePolicy")
+    ResiliencePolicy reviewsResiliencePolicy;
+
+    @BeforeEach
+    void setUp() {
+        //stubs are reset between tests, the request journal is not
+        resetAllRequests();
+    }
+
+    @Test
+    void retrieveMovieById() {
+        //given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos" + "/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        //when
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                    var movie = movieEntityExchangeResult.getResponseBody();
+                    assert movie != null;
+                    assertEquals(2, movie.getReviewList().size());
+                    assertEquals("Batman Begins", movie.getMovieInfo().getName());
+                });
+    }
+
+    @Test
+    void retrieveMovieById_smile() throws Exception {
+        //given
+        var movieId = "abc";
+        var smileMapper = new ObjectMapper(new SmileFactory()).findAndRegisterModules();
+        var movieInfo = new MovieInfo(movieId, "Batman Begins", 2005,
+                List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+        var reviews = List.of(new Review("1", 1L, "Awesome Movie", 9.0),
+                new Review("2", 1L, "Excellent Movie", 8.0));
+        stubFor(get(urlEqualTo("/v1/movieinfos" + "/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", CodecConfig.APPLICATION_SMILE.toString())
+                        .withBody(smileMapper.writeValueAsBytes(movieInfo))));
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", CodecConfig.APPLICATION_SMILE.toString())
+                        .withBody(smileMapper.writeValueAsBytes(reviews))));
+
+        //when
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                    var movie = movieEntityExchangeResult.getResponseBody();
+                    assert movie != null;
+                    assertEquals(2, movie.getReviewList().size());
+                    assertEquals("Batman Begins", movie.getMovieInfo().getName());
+                    assertEquals(LocalDate.parse("2005-06-15"), movie.getMovieInfo().getRelease_date());
+                });
+
+        //then
+        verify(getRequestedFor(urlEqualTo("/v1/movieinfos" + "/" + movieId))
+                .withHeader("Accept", containing(CodecConfig.APPLICATION_SMILE.toString())));
+        verify(getRequestedFor(urlPathEqualTo("/v1/reviews"))
+                .withHeader("Accept", containing(CodecConfig.APPLICATION_SMILE.toString())));
+    }
+
+    @Test
+    void retrieveMovieById_reviewsNotFound() {
+        //given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos" + "/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withStatus(404)));
+
+        //when
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                    var movie = movieEntityExchangeResult.getResponseBody();
+                    assert movie != null;
+                    assertEquals(0, movie.getReviewList().size());
+                });
+    }
+
+    @Test
+    void retrieveMovieById_404() {
+        //given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos" + "/" + movieId))
+                .willReturn(aResponse()
+                        .withStatus(404)));
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        //when
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody(String.class)
+                .isEqualTo("There is no MovieInfo Available for the passed in Id : abc");
+    }
+
+    @Test
+    void retrieveMovieById_5XX() {
+        //given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos" + "/" + movieId))
+                .willReturn(aResponse()
+                        .withStatus(500)
+                        .withBody("MovieInfo Service Unavailable")));
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        //when
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus().is5xxServerError()
+                .expectBody(String.class)
+                .isEqualTo("Server Exception in MoviesInfoService MovieInfo Service Unavailable");
+
+        //then - first attempt and restClient.moviesInfo.retry.max-retries retries
+        verify(3, getRequestedFor(urlEqualTo("/v1/movieinfos" + "/" + movieId)));
+    }
+
+    @Test
+    void retrieveMovieById_reviews_5XX() {
+        //given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos" + "/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withStatus(500)
+                        .withBody("Review Service Not Available")));
+
+        //when
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus().is5xxServerError()
+                .expectBody(String.class)
+                .isEqualTo("Server Exception in ReviewsService Review Service Not Available");
+
+        //then - first attempt and restClient.reviews.retry.max-retries retries
+        verify(2, getRequestedFor(urlPathEqualTo("/v1/reviews")));
+    }
+
+    @Test
+    void retrieveMovieById_reviewsCircuitOpen() {
+        //given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos" + "/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+        reviewsResiliencePolicy.getCircuitBreaker().transitionToOpenState();
+
+        try {
+            //when
+            webTestClient
+                    .get()
+                    .uri("/v1/movies/{id}", movieId)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(Movie.class)
+                    .consumeWith(movieEntityExchangeResult -> {
+                        var movie = movieEntityExchangeResult.getResponseBody();
+                        assert movie != null;
+                        assertEquals(0, movie.getReviewList().size());
+                        assertEquals("Batman Begins", movie.getMovieInfo().getName());
+                    });
+
+            //then
+            verify(0, getRequestedFor(urlPathEqualTo("/v1/reviews")));
+        } finally {
+            reviewsResiliencePolicy.getCircuitBreaker().reset();
+        }
+    }
+
+    @Test
+    void retrieveMovieById_moviesInfoCircuitOpen() {
+        //given
+        moviesInfoResiliencePolicy.getCircuitBreaker().transitionToOpenState();
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        try {
+            //when
+            webTestClient
+                    .get()
+                    .uri("/v1/movies/{id}", "abc")
+                    .exchange()
+                    .expectStatus().isEqualTo(503);
+
+            //then
+            verify(0, getRequestedFor(urlPathEqualTo("/v1/movieinfos/abc")));
+        } finally {
+            moviesInfoResiliencePolicy.getCircuitBreaker().reset();
+        }
+    }
+
+    @Test
+    void prometheusScrape_reportsRoutePercentiles() {
+        //given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos" + "/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus().isOk();
+
+        //when
+        webTestClient
+                .get()
+                .uri("/actuator/prometheus")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                //then
+                .value(scrape -> {
+                    assert scrape.contains("http_server_requests_seconds{") : scrape;
+                    assert scrape.contains("uri=\"/v1/movies/{id}\"");
+                    assert scrape.contains("quantile=\"0.999\"");
+                    assert scrape.contains("http_client_requests_seconds");
+                    assert scrape.contains("http_server_requests_in_flight");
+                    assert scrape.contains("resilience4j_circuitbreaker_state{");
+                    assert scrape.contains("reactor_netty_connection_provider_active_connections{");
+                });
+    }
 }
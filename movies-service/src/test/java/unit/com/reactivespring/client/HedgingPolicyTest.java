@@ -0,0 +1,131 @@
+package com.reactivespring.client;
+
+import com.reactivespring.config.RestClientProperties;
+import com.reactivespring.exception.MoviesInfoServerException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HedgingPolicyTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void apply_hedgesSlowCallAndCancelsIt() {
+        //given
+        var policy = new HedgingPolicy("moviesInfo", hedge(100.0), meterRegistry);
+        var attempts = new AtomicInteger();
+        var primaryCancelled = new AtomicBoolean();
+        var call = Mono.defer(() -> attempts.incrementAndGet() == 1
+                ? Mono.just("primary").delayElement(Duration.ofSeconds(5)).doOnCancel(() -> primaryCancelled.set(true))
+                : Mono.just("hedge").delayElement(Duration.ofMillis(10)));
+
+        //then
+        StepVerifier.create(policy.apply(() -> call))
+                .expectNext("hedge")
+                .expectComplete()
+                .verify(Duration.ofSeconds(2));
+        assertEquals(2, attempts.get());
+        assertTrue(primaryCancelled.get());
+        assertEquals(1.0, meterRegistry.get("http.client.hedges").tag("outcome", "won").counter().count());
+    }
+
+    @Test
+    void apply_fastCallIsNotHedged() {
+        //given
+        var policy = new HedgingPolicy("moviesInfo", hedge(100.0), meterRegistry);
+        var attempts = new AtomicInteger();
+
+        //then
+        StepVerifier.create(policy.apply(() -> Mono.fromCallable(() -> "primary-" + attempts.incrementAndGet())))
+                .expectNext("primary-1")
+                .verifyComplete();
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void apply_noHedgeWithoutBudget() {
+        //given
+        var policy = new HedgingPolicy("moviesInfo", hedge(0.0), meterRegistry);
+        var attempts = new AtomicInteger();
+        var call = Mono.defer(() -> Mono.just("primary-" + attempts.incrementAndGet()).delayElement(Duration.ofMillis(200)));
+
+        //then
+        StepVerifier.create(policy.apply(() -> call))
+                .expectNext("primary-1")
+                .verifyComplete();
+        assertEquals(1, attempts.get());
+        assertEquals(1.0, meterRegistry.get("http.client.hedges").tag("outcome", "budget_exhausted").counter().count());
+    }
+
+    @Test
+    void apply_budgetLimitsHedgesToShareOfCalls() {
+        //given - every call is slow, only 10% of them may be hedged
+        var policy = new HedgingPolicy("moviesInfo", hedge(10.0), meterRegistry);
+        var call = Mono.just("movieInfo").delayElement(Duration.ofMillis(100));
+
+        //when
+        Flux.range(0, 100)
+                .flatMap(i -> policy.apply(() -> call))
+                .blockLast(Duration.ofSeconds(10));
+
+        //then
+        assertEquals(10.0, meterRegistry.get("http.client.hedges").tag("outcome", "sent").counter().count());
+    }
+
+    @Test
+    void apply_firstErrorIsReturnedWithoutHedging() {
+        //given
+        var policy = new HedgingPolicy("moviesInfo", hedge(100.0), meterRegistry);
+        var attempts = new AtomicInteger();
+        var call = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.<String>error(new MoviesInfoServerException("Server Exception in MoviesInfoService"));
+        });
+
+        //then
+        StepVerifier.create(policy.apply(() -> call))
+                .expectError(MoviesInfoServerException.class)
+                .verify(Duration.ofMillis(40));
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void apply_delayFollowsPercentileOfRecentLatencies() throws InterruptedException {
+        //given
+        var hedge = hedge(100.0);
+        hedge.setMinSamples(10);
+        hedge.setRefreshInterval(Duration.ofMillis(1));
+        var policy = new HedgingPolicy("moviesInfo", hedge, meterRegistry);
+
+        //when
+        Flux.range(0, 20)
+                .concatMap(i -> policy.apply(() -> Mono.just(i).delayElement(Duration.ofMillis(15))))
+                .blockLast();
+        Thread.sleep(5);
+        policy.apply(() -> Mono.just(0)).block();
+
+        //then - between the observed 15ms latencies and the 30ms max-delay
+        var delayMillis = TimeUnit.MICROSECONDS.toMillis(policy.delayMicros());
+        assertTrue(delayMillis >= 15 && delayMillis < 30, "delay " + delayMillis + "ms");
+    }
+
+    private static RestClientProperties.Hedge hedge(double budgetPercent) {
+        var hedge = new RestClientProperties.Hedge();
+        hedge.setEnabled(true);
+        hedge.setMinDelay(Duration.ofMillis(5));
+        hedge.setMaxDelay(Duration.ofMillis(30));
+        hedge.setBudgetPercent(budgetPercent);
+        return hedge;
+    }
+}
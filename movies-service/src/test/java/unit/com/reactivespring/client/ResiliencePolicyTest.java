@@ -0,0 +1,94 @@
+package com.reactivespring.client;
+
+import com.reactivespring.exception.ReviewsClientException;
+import com.reactivespring.exception.ReviewsServerException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ResiliencePolicyTest {
+
+    @Test
+    void apply_retriesServerExceptions() {
+        //given
+        var policy = policy(CircuitBreakerConfig.ofDefaults());
+        var attempts = new AtomicInteger();
+        var call = Mono.defer(() -> attempts.incrementAndGet() < 3
+                ? Mono.error(new ReviewsServerException("Server Exception in ReviewsService"))
+                : Mono.just("reviews"));
+
+        //then
+        StepVerifier.create(policy.apply(call))
+                .expectNext("reviews")
+                .verifyComplete();
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void apply_keepsLastServerExceptionWhenRetriesAreExhausted() {
+        //given
+        var policy = policy(CircuitBreakerConfig.ofDefaults());
+
+        //then
+        StepVerifier.create(policy.apply(Mono.error(new ReviewsServerException("Server Exception in ReviewsService"))))
+                .expectError(ReviewsServerException.class)
+                .verify();
+    }
+
+    @Test
+    void apply_doesNotRetryClientExceptions() {
+        //given
+        var policy = policy(CircuitBreakerConfig.ofDefaults());
+        var attempts = new AtomicInteger();
+        var call = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(new ReviewsClientException("Bad Request"));
+        });
+
+        //then
+        StepVerifier.create(policy.apply(call))
+                .expectError(ReviewsClientException.class)
+                .verify();
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void apply_failsFastWhenCircuitIsOpen() {
+        //given
+        var policy = policy(CircuitBreakerConfig.custom()
+                .slidingWindowSize(2)
+                .minimumNumberOfCalls(2)
+                .recordException(ReviewsServerException.class::isInstance)
+                .build());
+        var attempts = new AtomicInteger();
+        var call = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.<String>error(new ReviewsServerException("Server Exception in ReviewsService"));
+        });
+
+        //when - the second failed attempt opens the circuit, the third one is not made
+        StepVerifier.create(policy.apply(call))
+                .expectError(CallNotPermittedException.class)
+                .verify();
+
+        //then
+        assertEquals(2, attempts.get());
+        assertEquals(CircuitBreaker.State.OPEN, policy.getCircuitBreaker().getState());
+    }
+
+    private static ResiliencePolicy policy(CircuitBreakerConfig circuitBreakerConfig) {
+        return new ResiliencePolicy(CircuitBreaker.of("reviews", circuitBreakerConfig),
+                Retry.backoff(2, Duration.ofMillis(10)).jitter(0.5),
+                ReviewsServerException.class,
+                ex -> new ReviewsServerException("Server Exception in ReviewsService " + ex.getMessage()));
+    }
+}
@@ -1,4 +1,124 @@
 package com.reactivespring.controller;
 
+import com.reactivespring.client.MoviesInfoRestClient;
+import com.reactivespring.client.ReviewsRestClient;
+import com.reactivespring.domain.Movie;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+import com.reactivespring.exception.MoviesInfoClientException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(controllers = MoviesController.class)
+@AutoConfigureWebTestClient
 public class MoviesControllerUnitTest {
+
+    static String MOVIES_URL = "/v1/movies";
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private MoviesInfoRestClient moviesInfoRestClientMock;
+
+    @MockBean
+    private ReviewsRestClient reviewsRestClientMock;
+
+    @Test
+    void retrieveMovieById() {
+        //given
+        var movieId = "abc";
+        var movieInfo = new MovieInfo(movieId, "Batman Begins",
+                2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+        var reviews = List.of(new Review("1", 1L, "Awesome Movie", 9.0),
+                new Review("2", 1L, "Excellent Movie", 8.0));
+
+        //both downstream calls take 500ms, the aggregate must not wait for them one after the other
+        when(moviesInfoRestClientMock.retrieveMovieInfo(movieId))
+                .thenReturn(Mono.just(movieInfo).delayElement(Duration.ofMillis(500)));
+        when(reviewsRestClientMock.retrieveReviews(movieId))
+                .thenReturn(Flux.fromIterable(reviews).delaySubscription(Duration.ofMillis(500)));
+
+        //then
+        var start = System.currentTimeMillis();
+        webTestClient
+                .get()
+                .uri(MOVIES_URL + "/{id}", movieId)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                    var movie = movieEntityExchangeResult.getResponseBody();
+                    assert movie != null;
+                    assertEquals("Batman Begins", movie.getMovieInfo().getName());
+                    assertEquals(2, movie.getReviewList().size());
+                });
+        var elapsed = System.currentTimeMillis() - start;
+        assert elapsed < 1000 : "downstream calls were not made in parallel, took " + elapsed + "ms";
+    }
+
+    @Test
+    void retrieveMovieById_notFound() {
+        //given
+        var movieId = "def";
+        when(moviesInfoRestClientMock.retrieveMovieInfo(movieId))
+                .thenReturn(Mono.error(new MoviesInfoClientException(
+                        "There is no MovieInfo Available for the passed in Id : " + movieId, 404)));
+        when(reviewsRestClientMock.retrieveReviews(movieId)).thenReturn(Flux.empty());
+
+        //then
+        webTestClient
+                .get()
+                .uri(MOVIES_URL + "/{id}", movieId)
+                .exchange()
+                .expectStatus()
+                .isNotFound();
+    }
+
+    @Test
+    void retrieveMoviesByIds() {
+        //given
+        var movieInfos = List.of(new MovieInfo("1", "Batman Begins",
+                        2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15")),
+                new MovieInfo("2", "The Dark Knight",
+                        2008, List.of("Christian Bale", "HeathLedger"), LocalDate.parse("2008-07-18")));
+        var reviews = List.of(new Review("1", 1L, "Awesome Movie", 9.0),
+                new Review("2", 1L, "Excellent Movie", 8.0),
+                new Review("3", 2L, "Nice Movie", 7.0));
+        var movieIds = List.of("1", "2");
+
+        when(moviesInfoRestClientMock.retrieveMovieInfos(movieIds)).thenReturn(Flux.fromIterable(movieInfos));
+        when(reviewsRestClientMock.retrieveReviews(movieIds)).thenReturn(Flux.fromIterable(reviews));
+
+        //then
+        webTestClient
+                .post()
+                .uri(MOVIES_URL + ":batchGet")
+                .bodyValue(movieIds)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(Movie.class)
+                .consumeWith(listEntityExchangeResult -> {
+                    var movies = listEntityExchangeResult.getResponseBody();
+                    assert movies != null;
+                    assertEquals(2, movies.size());
+                    assertEquals(2, movies.get(0).getReviewList().size());
+                    assertEquals(1, movies.get(1).getReviewList().size());
+                });
+    }
 }
@@ -0,0 +1,92 @@
+package com.learnreactiveprogramming.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * zip arity 2 vs 4, merge vs concat and transform composition vs the same operators chained inline,
+ * the shapes of exploreZip / exploreZip1 / explore_merge / namesFlux_transform.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CombiningOperatorsBenchmark {
+
+    @Param({"1000", "100000"})
+    int elements;
+
+    List<String> values;
+
+    @Setup
+    public void setUp() {
+        values = IntStream.range(0, elements)
+                .mapToObj(i -> i % 2 == 0 ? "alex" : "chloe")
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public void zip2(Blackhole blackhole) {
+        Flux.zip(Flux.fromIterable(values), Flux.fromIterable(values), (first, second) -> first + second)
+                .subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void zip4(Blackhole blackhole) {
+        Flux.zip(Flux.fromIterable(values), Flux.fromIterable(values), Flux.fromIterable(values), Flux.fromIterable(values))
+                .map(t4 -> t4.getT1() + t4.getT2() + t4.getT3() + t4.getT4())
+                .subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void zip2Twice(Blackhole blackhole) {
+        //four sources paired two by two, without the Tuple4
+        var firstPair = Flux.zip(Flux.fromIterable(values), Flux.fromIterable(values), (first, second) -> first + second);
+        var secondPair = Flux.zip(Flux.fromIterable(values), Flux.fromIterable(values), (first, second) -> first + second);
+        Flux.zip(firstPair, secondPair, (first, second) -> first + second)
+                .subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void merge(Blackhole blackhole) {
+        Flux.merge(Flux.fromIterable(values), Flux.fromIterable(values))
+                .subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void concat(Blackhole blackhole) {
+        Flux.concat(Flux.fromIterable(values), Flux.fromIterable(values))
+                .subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void transformComposition(Blackhole blackhole) {
+        Function<Flux<String>, Flux<String>> filterMap = name -> name.map(String::toUpperCase)
+                .filter(s -> s.length() > 4);
+
+        Flux.fromIterable(values)
+                .transform(filterMap)
+                .subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void inlineComposition(Blackhole blackhole) {
+        Flux.fromIterable(values)
+                .map(String::toUpperCase)
+                .filter(s -> s.length() > 4)
+                .subscribe(blackhole::consume);
+    }
+}
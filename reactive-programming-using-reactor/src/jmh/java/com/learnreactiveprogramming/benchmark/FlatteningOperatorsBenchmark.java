@@ -0,0 +1,77 @@
+package com.learnreactiveprogramming.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * flatMap vs concatMap vs flatMapSequential over synchronous inner publishers,
+ * the shape of namesFlux_flatmap / namesFlux_concatmap without the .log() and the delays.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FlatteningOperatorsBenchmark {
+
+    @Param({"1000", "100000"})
+    int elements;
+
+    //characters per inner publisher, a typical name length
+    @Param({"5"})
+    int innerSize;
+
+    List<String> names;
+
+    @Setup
+    public void setUp() {
+        var name = "x".repeat(innerSize);
+        names = IntStream.range(0, elements)
+                .mapToObj(i -> name)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public void flatMap(Blackhole blackhole) {
+        Flux.fromIterable(names)
+                .flatMap(FlatteningOperatorsBenchmark::chars)
+                .subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void concatMap(Blackhole blackhole) {
+        Flux.fromIterable(names)
+                .concatMap(FlatteningOperatorsBenchmark::chars)
+                .subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void flatMapSequential(Blackhole blackhole) {
+        Flux.fromIterable(names)
+                .flatMapSequential(FlatteningOperatorsBenchmark::chars)
+                .subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void flatMapIterable(Blackhole blackhole) {
+        //baseline: no inner publisher to subscribe to at all
+        Flux.fromIterable(names)
+                .flatMapIterable(name -> name.chars().boxed().collect(Collectors.toList()))
+                .subscribe(blackhole::consume);
+    }
+
+    private static Flux<Integer> chars(String name) {
+        return Flux.range(0, name.length()).map(name::charAt).map(Integer::valueOf);
+    }
+}
@@ -0,0 +1,47 @@
+package com.learnreactiveprogramming.benchmark;
+
+import com.learnreactiveprogramming.service.FluxAndMonoGeneratorService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * split("") against the code point variants of FluxAndMonoGeneratorService, run with the gc profiler for B/op.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SplitStringBenchmark {
+
+    @Param({"ALEX", "CHRISTOPHER NOLAN"})
+    String name;
+
+    FluxAndMonoGeneratorService fluxAndMonoGeneratorService = new FluxAndMonoGeneratorService();
+
+    @Benchmark
+    public void splitString(Blackhole blackhole) {
+        fluxAndMonoGeneratorService.splitString(name).subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void splitStringByCodePoints(Blackhole blackhole) {
+        fluxAndMonoGeneratorService.splitStringByCodePoints(name).subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void splitStringMono(Blackhole blackhole) {
+        fluxAndMonoGeneratorService.splitStringMono(name).subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void splitStringByCodePointsMono(Blackhole blackhole) {
+        fluxAndMonoGeneratorService.splitStringByCodePointsMono(name).subscribe(blackhole::consume);
+    }
+}
@@ -4,12 +4,22 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 import java.util.function.Function;
 
 public class FluxAndMonoGeneratorService {
 
+    //one shared String per Latin-1 character, splitting ASCII/Latin-1 names allocates no String at all
+    private static final String[] LATIN_1_STRINGS = new String[256];
+
+    static {
+        for (int c = 0; c < LATIN_1_STRINGS.length; c++) {
+            LATIN_1_STRINGS[c] = String.valueOf((char) c);
+        }
+    }
+
     //FIRST FLUX
     public Flux<String> namesFlux() {
         return Flux.fromIterable(List.of("alex", "ben", "chloe"));
@@ -37,7 +47,7 @@ public class FluxAndMonoGeneratorService {
                 //.map(String::toUpperCase)
                 .filter(s-> s.length() > stringLength)
                 .map(String::toUpperCase)
-                .flatMap(s-> splitString(s))
+                .flatMap(s-> splitStringByCodePoints(s))
                 .log();
     }
 
@@ -50,7 +60,7 @@ public class FluxAndMonoGeneratorService {
         //filter the string whose length is greater than 3
         return Flux.fromIterable(List.of("alex", "ben", "chloe"))
                 .transform(filterMap)
-                .flatMap(s-> splitString(s))
+                .flatMap(s-> splitStringByCodePoints(s))
                 .defaultIfEmpty("default")
                 .log();
     }
@@ -60,7 +70,7 @@ public class FluxAndMonoGeneratorService {
 
         Function<Flux<String>, Flux<String>> filterMap = name -> name.map(String::toUpperCase)
                 .filter(s-> s.length() > stringLength)
-                .flatMap(s-> splitString(s));
+                .flatMap(s-> splitStringByCodePoints(s));
 
         var defaultFlux = Flux.just("default")
                 .transform(filterMap);
@@ -80,7 +90,7 @@ public class FluxAndMonoGeneratorService {
                 //.map(String::toUpperCase)
                 .filter(s-> s.length() > stringLength)
                 .map(String::toUpperCase)
-                .flatMap(s-> splitStringWithDelay(s))
+                .flatMap(s-> splitStringByCodePointsWithDelay(s))
                 .log();
     }
 
@@ -91,7 +101,7 @@ public class FluxAndMonoGeneratorService {
                 //.map(String::toUpperCase)
                 .filter(s-> s.length() > stringLength)
                 .map(String::toUpperCase)
-                .concatMap(s-> splitStringWithDelay(s))
+                .concatMap(s-> splitStringByCodePointsWithDelay(s))
                 .log();
     }
 
@@ -110,6 +120,39 @@ public class FluxAndMonoGeneratorService {
                 .delayElements(Duration.ofMillis(delay));
     }
 
+    // RETURNS THE FLUX OF CODE POINTS OF A STRING
+    // no regex and no String[]: each code point is emitted on request, surrogate pairs stay together
+    public Flux<String> splitStringByCodePoints(String name) {
+        return Flux.generate(() -> 0, (index, sink) -> {
+            if (index >= name.length()) {
+                sink.complete();
+                return index;
+            }
+            var codePoint = name.codePointAt(index);
+            var nextIndex = index + Character.charCount(codePoint);
+            sink.next(codePointToString(codePoint));
+            //completes with the last code point instead of waiting for one more request
+            if (nextIndex >= name.length()) {
+                sink.complete();
+            }
+            return nextIndex;
+        });
+    }
+
+    // RETURNS THE FLUX OF CODE POINTS OF A STRING WITH DELAY
+    public Flux<String> splitStringByCodePointsWithDelay(String name) {
+        var delay = 1000;
+        return splitStringByCodePoints(name)
+                .delayElements(Duration.ofMillis(delay));
+    }
+
+    private static String codePointToString(int codePoint) {
+        if (codePoint < LATIN_1_STRINGS.length) {
+            return LATIN_1_STRINGS[codePoint];
+        }
+        return new String(Character.toChars(codePoint));
+    }
+
     // FLUX ELEMENTS ARE IMMUTABLE AND CAN ONLY BE TRANSFORMED IF DONE DIRECTLY IN THE STREAM
     public Flux<String> namesFlux_immutability() {
         var namesFlux = Flux.fromIterable(List.of("alex","ben","chloe"));
@@ -128,7 +171,7 @@ public class FluxAndMonoGeneratorService {
         return Mono.just("alex")
                 .map(String::toUpperCase)
                 .filter(s->s.length() > stringLength)
-                .flatMap(this::splitStringMono)
+                .flatMap(this::splitStringByCodePointsMono)
                 .log();
     }
 
@@ -136,7 +179,7 @@ public class FluxAndMonoGeneratorService {
         return Mono.just("alex")
                 .map(String::toUpperCase)
                 .filter(s->s.length() > stringLength)
-                .flatMapMany(this::splitString)
+                .flatMapMany(this::splitStringByCodePoints)
                 .log();
     }
 
@@ -146,6 +189,16 @@ public class FluxAndMonoGeneratorService {
         return Mono.just(charList);
     }
 
+    public Mono<List<String>> splitStringByCodePointsMono(String s) {
+        var codePoints = new ArrayList<String>(s.length());
+        for (int index = 0; index < s.length(); ) {
+            var codePoint = s.codePointAt(index);
+            codePoints.add(codePointToString(codePoint));
+            index += Character.charCount(codePoint);
+        }
+        return Mono.just(codePoints);
+    }
+
     /*
      ----  concat
      1-  Used to combine two reactive streams in one
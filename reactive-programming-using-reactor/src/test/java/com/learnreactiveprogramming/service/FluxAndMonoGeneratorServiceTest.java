@@ -200,4 +200,39 @@ class FluxAndMonoGeneratorServiceTest {
                 .verifyComplete();
     }
 
-}
\ No newline at end of file
+
+    @Test
+    void splitStringByCodePoints() {
+        //given - the emoji is a surrogate pair, split("") cuts it in two
+        var name = "a\uD83D\uDE00\u00E9";
+
+        //when
+        var codePoints = fluxAndMonoGeneratorService.splitStringByCodePoints(name);
+
+        //then
+        StepVerifier.create(codePoints)
+                .expectNext("a", "\uD83D\uDE00", "\u00E9")
+                .verifyComplete();
+        StepVerifier.create(fluxAndMonoGeneratorService.splitString(name))
+                .expectNextCount(4)
+                .verifyComplete();
+    }
+
+    @Test
+    void splitStringByCodePoints_lazy() {
+        StepVerifier.create(fluxAndMonoGeneratorService.splitStringByCodePoints("ALEX"), 2)
+                .expectNext("A", "L")
+                .thenRequest(2)
+                .expectNext("E", "X")
+                .verifyComplete();
+        StepVerifier.create(fluxAndMonoGeneratorService.splitStringByCodePoints(""))
+                .verifyComplete();
+    }
+
+    @Test
+    void splitStringByCodePointsMono() {
+        StepVerifier.create(fluxAndMonoGeneratorService.splitStringByCodePointsMono("b\uD83D\uDE00"))
+                .expectNext(List.of("b", "\uD83D\uDE00"))
+                .verifyComplete();
+    }
+}